@@ -70,7 +70,7 @@ public class SecurityConfig {
             ));
             cfg.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD"));
             cfg.setAllowedHeaders(List.of("*"));
-            cfg.setExposedHeaders(List.of("Authorization", "Content-Disposition"));
+            cfg.setExposedHeaders(List.of("Authorization", "Content-Disposition", "X-Next-Cursor"));
             cfg.setAllowCredentials(true);
             cfg.setMaxAge(3600L);
             return cfg;
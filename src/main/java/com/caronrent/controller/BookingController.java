@@ -1,25 +1,37 @@
 package com.caronrent.controller;
 
 import com.caronrent.dto.BookingRequestDTO;
+import com.caronrent.dto.BookingReserveDTO;
 import com.caronrent.dto.BookingResponseDTO;
+import com.caronrent.dto.FieldSelection;
+import com.caronrent.service.BookingHoldWheel;
 import com.caronrent.service.BookingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/bookings")
 public class BookingController {
     private final BookingService bookingService;
+    private final BookingHoldWheel bookingHoldWheel;
+    private final ObjectMapper objectMapper;
 
-    public BookingController(BookingService bookingService) {
+    public BookingController(BookingService bookingService, BookingHoldWheel bookingHoldWheel,
+                             ObjectMapper objectMapper) {
         this.bookingService = bookingService;
+        this.bookingHoldWheel = bookingHoldWheel;
+        this.objectMapper = objectMapper;
     }
 
     // User endpoints
@@ -41,12 +53,49 @@ public class BookingController {
         return ResponseEntity.ok(booking);
     }
 
+    // Two-phase booking: reserve with JSON first, then upload the documents before holdExpiresAt
+    @PostMapping("/user/reserve")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<BookingResponseDTO> reserveBooking(
+            @RequestBody BookingReserveDTO reserveRequest,
+            Authentication authentication) {
+        String email = authentication.getName();
+        BookingResponseDTO booking = bookingService.reserveBooking(email, reserveRequest);
+        return ResponseEntity.ok(booking);
+    }
+
+    @PostMapping(value = "/user/{encryptedBookingId}/documents", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<BookingResponseDTO> attachDocuments(
+            @PathVariable String encryptedBookingId,
+            @RequestPart("drivingLicense") MultipartFile drivingLicense,
+            @RequestPart("aadharCard") MultipartFile aadharCard,
+            @RequestPart("policeVerification") MultipartFile policeVerification,
+            Authentication authentication) {
+        String email = authentication.getName();
+        BookingResponseDTO booking = bookingService.attachDocuments(encryptedBookingId, email,
+                drivingLicense, aadharCard, policeVerification);
+        return ResponseEntity.ok(booking);
+    }
+
+    // Optional fields: comma-separated BookingResponseDTO properties to load and return (also on /owner/bookings)
     @GetMapping("/user/my-bookings")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<List<BookingResponseDTO>> getMyBookings(Authentication authentication) {
+    public ResponseEntity<MappingJacksonValue> getMyBookings(
+            @RequestParam(required = false) String fields,
+            Authentication authentication) {
         String email = authentication.getName();
-        List<BookingResponseDTO> bookings = bookingService.getUserBookings(email);
-        return ResponseEntity.ok(bookings);
+        FieldSelection selection = FieldSelection.parse(fields, BookingResponseDTO.class);
+        List<BookingResponseDTO> bookings = bookingService.getUserBookings(email, selection);
+        return ResponseEntity.ok(SparseFields.filter(bookings, selection));
+    }
+
+    @GetMapping(value = "/user/my-bookings", produces = NdjsonResponses.APPLICATION_NDJSON)
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamMyBookings(Authentication authentication) {
+        String email = authentication.getName();
+        return NdjsonResponses.stream(objectMapper,
+                sink -> bookingService.streamUserBookings(email, sink));
     }
 
     @PutMapping("/user/{encryptedBookingId}/cancel")
@@ -62,10 +111,21 @@ public class BookingController {
     // Car Owner endpoints
     @GetMapping("/owner/bookings")
     @PreAuthorize("hasAnyRole('CAROWNER', 'ADMIN')")
-    public ResponseEntity<List<BookingResponseDTO>> getOwnerBookings(Authentication authentication) {
+    public ResponseEntity<MappingJacksonValue> getOwnerBookings(
+            @RequestParam(required = false) String fields,
+            Authentication authentication) {
+        String email = authentication.getName();
+        FieldSelection selection = FieldSelection.parse(fields, BookingResponseDTO.class);
+        List<BookingResponseDTO> bookings = bookingService.getOwnerBookings(email, selection);
+        return ResponseEntity.ok(SparseFields.filter(bookings, selection));
+    }
+
+    @GetMapping(value = "/owner/bookings", produces = NdjsonResponses.APPLICATION_NDJSON)
+    @PreAuthorize("hasAnyRole('CAROWNER', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamOwnerBookings(Authentication authentication) {
         String email = authentication.getName();
-        List<BookingResponseDTO> bookings = bookingService.getOwnerBookings(email);
-        return ResponseEntity.ok(bookings);
+        return NdjsonResponses.stream(objectMapper,
+                sink -> bookingService.streamOwnerBookings(email, sink));
     }
 
     @PutMapping("/owner/{encryptedBookingId}/confirm")
@@ -98,6 +158,12 @@ public class BookingController {
         return ResponseEntity.ok(booking);
     }
 
+    @GetMapping("/admin/hold-expiry/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getHoldExpiryStats() {
+        return ResponseEntity.ok(bookingHoldWheel.getStats());
+    }
+
     @GetMapping("/{encryptedBookingId}")
     @PreAuthorize("hasAnyRole('USER', 'CAROWNER', 'ADMIN')")
     public ResponseEntity<BookingResponseDTO> getBookingById(@PathVariable String encryptedBookingId) {
@@ -1,28 +1,68 @@
 package com.caronrent.controller;
 
+import com.caronrent.dto.CarBatchRequestDTO;
 import com.caronrent.dto.CarDTO;
+import com.caronrent.dto.CarFacetsDTO;
+import com.caronrent.dto.CarPageDTO;
 import com.caronrent.dto.CarResponseDTO;
+import com.caronrent.dto.CarSearchCriteria;
+import com.caronrent.dto.CarSort;
 import com.caronrent.dto.CarStatusDTO;
+import com.caronrent.dto.FieldSelection;
+import com.caronrent.dto.FlexibleAvailabilityDTO;
+import com.caronrent.dto.NearbyCarDTO;
+import com.caronrent.dto.SuggestResponseDTO;
+import com.caronrent.service.CarPopularityCounters;
 import com.caronrent.service.CarService;
+import com.caronrent.service.CarSuggestionIndex;
+import com.caronrent.service.CarTextIndex;
+import com.caronrent.service.CatalogCache;
+import com.caronrent.service.CatalogSnapshot;
+import com.caronrent.service.SearchResultCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/cars")
 public class CarController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_SUGGESTIONS = 20;
+
     private final CarService carService;
+    private final CarSuggestionIndex carSuggestionIndex;
+    private final CatalogCache catalogCache;
+    private final SearchResultCache searchResultCache;
+    private final CarPopularityCounters carPopularityCounters;
+    private final CarTextIndex carTextIndex;
+    private final ObjectMapper objectMapper;
 
-    public CarController(CarService carService) {
+    public CarController(CarService carService, CarSuggestionIndex carSuggestionIndex, CatalogCache catalogCache,
+                         SearchResultCache searchResultCache, CarPopularityCounters carPopularityCounters,
+                         CarTextIndex carTextIndex, ObjectMapper objectMapper) {
         this.carService = carService;
+        this.carSuggestionIndex = carSuggestionIndex;
+        this.catalogCache = catalogCache;
+        this.searchResultCache = searchResultCache;
+        this.carPopularityCounters = carPopularityCounters;
+        this.carTextIndex = carTextIndex;
+        this.objectMapper = objectMapper;
     }
 
     // Car Owner endpoints
@@ -40,10 +80,20 @@ public class CarController {
 
     @GetMapping("/owner/my-cars")
     @PreAuthorize("hasAnyRole('CAROWNER', 'ADMIN')")
-    public ResponseEntity<List<CarResponseDTO>> getMyCars(Authentication authentication) {
+    public ResponseEntity<MappingJacksonValue> getMyCars(
+            @RequestParam(required = false) String fields,
+            Authentication authentication) {
         String email = authentication.getName();
-        List<CarResponseDTO> cars = carService.getMyCars(email);
-        return ResponseEntity.ok(cars);
+        FieldSelection selection = FieldSelection.parse(fields, CarResponseDTO.class);
+        List<CarResponseDTO> cars = carService.getMyCars(email, selection);
+        return ResponseEntity.ok(SparseFields.filter(cars, selection));
+    }
+
+    @GetMapping(value = "/owner/my-cars", produces = NdjsonResponses.APPLICATION_NDJSON)
+    @PreAuthorize("hasAnyRole('CAROWNER', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamMyCars(Authentication authentication) {
+        String email = authentication.getName();
+        return NdjsonResponses.stream(objectMapper, sink -> carService.streamMyCars(email, sink));
     }
 
     @PutMapping("/owner/{encryptedCarId}/status")
@@ -67,105 +117,307 @@ public class CarController {
         return ResponseEntity.ok("Car deleted successfully");
     }
 
+    // Admin endpoints
+    @GetMapping("/admin/catalog-cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCatalogCacheStats() {
+        return ResponseEntity.ok(catalogCache.getStats());
+    }
+
+    @GetMapping("/admin/search-cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getSearchCacheStats() {
+        return ResponseEntity.ok(searchResultCache.getStats());
+    }
+
+    @PostMapping("/admin/text-index/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildTextIndex() {
+        return ResponseEntity.ok(Map.of("indexedCars", carTextIndex.rebuild()));
+    }
+
     // Public endpoints (for users to browse cars)
     @GetMapping("/public/all")
-    public ResponseEntity<List<CarResponseDTO>> getAllAvailableCars() {
-        List<CarResponseDTO> cars = carService.getAllAvailableCars();
-        return ResponseEntity.ok(cars);
+    public ResponseEntity<byte[]> getAllAvailableCars(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) {
+        return toSnapshotResponse(carService.getAllAvailableCarsSnapshot(), acceptEncoding, webRequest);
+    }
+
+    @GetMapping(value = "/public/all", produces = NdjsonResponses.APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllAvailableCars() {
+        return NdjsonResponses.stream(objectMapper, carService::streamAllAvailableCars);
     }
 
     // Get available cars by date range
+    // Optional keyset pagination: pass limit, then send back X-Next-Cursor as cursor
+    // Optional sort: price_asc, price_desc, newest, year or popularity (also on the search endpoints)
+    // Optional fields: comma-separated CarResponseDTO properties to load and return (all car list endpoints)
     @GetMapping("/public/available")
-    public ResponseEntity<List<CarResponseDTO>> getAvailableCarsByDate(
+    public ResponseEntity<MappingJacksonValue> getAvailableCarsByDate(
             @RequestParam String startDate,
-            @RequestParam String endDate) {
+            @RequestParam String endDate,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, CarResponseDTO.class);
 
-        try {
-            DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-            LocalDateTime start = LocalDateTime.parse(startDate, formatter);
-            LocalDateTime end = LocalDateTime.parse(endDate, formatter);
+        return toPageResponse(carService.getAvailableCarsByDate(
+                parseDate(startDate), parseDate(endDate), CarSort.fromParam(sort), cursor, limit, selection), selection);
+    }
 
-            List<CarResponseDTO> cars = carService.getAvailableCarsByDate(start, end);
-            return ResponseEntity.ok(cars);
-        } catch (Exception e) {
-            throw new RuntimeException("Invalid date format. Use ISO format: yyyy-MM-dd'T'HH:mm:ss");
+    @GetMapping("/public/{encryptedCarId}")
+    public ResponseEntity<byte[]> getCarById(
+            @PathVariable String encryptedCarId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) {
+        CatalogSnapshot snapshot = carService.getCarSnapshot(encryptedCarId);
+        carPopularityCounters.recordView(encryptedCarId);
+        return toSnapshotResponse(snapshot, acceptEncoding, webRequest);
+    }
+
+    // "Similar cars" for the detail page: same area, similar price band and segment, free for the window
+    @GetMapping("/public/{encryptedCarId}/similar")
+    public ResponseEntity<List<CarResponseDTO>> getSimilarCars(
+            @PathVariable String encryptedCarId,
+            @RequestParam(defaultValue = "6") Integer limit,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate) {
+        return ResponseEntity.ok(carService.getSimilarCars(encryptedCarId, limit,
+                startDate != null ? parseDate(startDate) : null,
+                endDate != null ? parseDate(endDate) : null));
+    }
+
+    // Batch lookup for recently viewed / favorites lists; results keep the request order
+    @PostMapping("/public/batch")
+    public ResponseEntity<List<CarResponseDTO>> getCarsByIds(@RequestBody CarBatchRequestDTO request) {
+        return ResponseEntity.ok(carService.getCarsByIds(request.getCarIds()));
+    }
+
+    // Most viewed/shown cars over the last hours (decayed counts), best first
+    @GetMapping("/public/trending")
+    public ResponseEntity<List<CarResponseDTO>> getTrendingCars(@RequestParam(defaultValue = "10") Integer limit) {
+        return ResponseEntity.ok(carService.getTrendingCars(limit));
+    }
+
+    // Autocomplete for the search box: top locations, brands and brand+model pairs by listing count
+    @GetMapping("/public/suggest")
+    public ResponseEntity<SuggestResponseDTO> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new RuntimeException("Limit must be between 1 and " + MAX_SUGGESTIONS);
         }
+        return ResponseEntity.ok(carSuggestionIndex.suggest(prefix, limit));
     }
 
-    @GetMapping("/public/{encryptedCarId}")
-    public ResponseEntity<CarResponseDTO> getCarById(@PathVariable String encryptedCarId) {
-        CarResponseDTO car = carService.getCarById(encryptedCarId);
-        return ResponseEntity.ok(car);
+    // Unified search: every filter is optional and they are combined in a single query
+    @GetMapping("/public/search")
+    public ResponseEntity<MappingJacksonValue> search(
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) String color,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, CarResponseDTO.class);
+
+        CarSearchCriteria criteria = toCriteria(location, brand, minPrice, maxPrice, year, color, startDate, endDate);
+        return toPageResponse(carService.searchCars(criteria, CarSort.fromParam(sort), cursor, limit, selection), selection);
     }
 
-    @GetMapping("/public/search/location")
-    public ResponseEntity<List<CarResponseDTO>> searchByLocation(
-            @RequestParam String location,
+    // Facet counts for the filter sidebar; takes the same filters as /public/search
+    @GetMapping("/public/search/facets")
+    public ResponseEntity<CarFacetsDTO> getSearchFacets(
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) String color,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate) {
+
+        CarSearchCriteria criteria = toCriteria(location, brand, minPrice, maxPrice, year, color, startDate, endDate);
+        return ResponseEntity.ok(carService.getSearchFacets(criteria));
+    }
+
+    // Cars within radiusKm of (lat, lon), nearest first, optionally free for [startDate, endDate]
+    @GetMapping("/public/nearby")
+    public ResponseEntity<List<NearbyCarDTO>> findNearbyCars(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam(defaultValue = "10") Double radiusKm,
+            @RequestParam(defaultValue = "20") Integer limit,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endDate) {
 
-        List<CarResponseDTO> cars;
+        List<NearbyCarDTO> cars = carService.findNearbyCars(lat, lon, radiusKm, limit,
+                startDate != null ? parseDate(startDate) : null,
+                endDate != null ? parseDate(endDate) : null);
+        return ResponseEntity.ok(cars);
+    }
+
+    // Flexible dates: free windows of durationDays starting within ±toleranceDays of startDate,
+    // for one car (carId) or for the cars matching the usual search filters
+    @GetMapping("/public/flexible")
+    public ResponseEntity<List<FlexibleAvailabilityDTO>> searchFlexibleDates(
+            @RequestParam(required = false) String carId,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam String startDate,
+            @RequestParam Integer durationDays,
+            @RequestParam(defaultValue = "3") Integer toleranceDays) {
+
+        CarSearchCriteria criteria = new CarSearchCriteria();
+        criteria.setLocation(location);
+        criteria.setBrand(brand);
+        criteria.setMinPrice(minPrice);
+        criteria.setMaxPrice(maxPrice);
+
+        List<FlexibleAvailabilityDTO> results = carService.searchFlexibleDates(
+                carId, criteria, parseDate(startDate), durationDays, toleranceDays);
+        return ResponseEntity.ok(results);
+    }
+
+    @GetMapping("/public/search/location")
+    public ResponseEntity<MappingJacksonValue> searchByLocation(
+            @RequestParam String location,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, CarResponseDTO.class);
 
         if (startDate != null && endDate != null) {
-            try {
-                DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-                LocalDateTime start = LocalDateTime.parse(startDate, formatter);
-                LocalDateTime end = LocalDateTime.parse(endDate, formatter);
-                cars = carService.searchCarsByLocationAndDate(location, start, end);
-            } catch (Exception e) {
-                throw new RuntimeException("Invalid date format. Use ISO format: yyyy-MM-dd'T'HH:mm:ss");
-            }
-        } else {
-            cars = carService.searchCarsByLocation(location);
+            return toPageResponse(carService.searchCarsByLocationAndDate(
+                    location, parseDate(startDate), parseDate(endDate), CarSort.fromParam(sort), cursor, limit, selection), selection);
         }
-        return ResponseEntity.ok(cars);
+        return toListResponse(carService.searchCarsByLocation(location, CarSort.fromParam(sort), selection), selection);
     }
 
     @GetMapping("/public/search/brand")
-    public ResponseEntity<List<CarResponseDTO>> searchByBrand(
+    public ResponseEntity<MappingJacksonValue> searchByBrand(
             @RequestParam String brand,
             @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate) {
-
-        List<CarResponseDTO> cars;
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, CarResponseDTO.class);
 
         if (startDate != null && endDate != null) {
-            try {
-                DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-                LocalDateTime start = LocalDateTime.parse(startDate, formatter);
-                LocalDateTime end = LocalDateTime.parse(endDate, formatter);
-                cars = carService.searchCarsByBrandAndDate(brand, start, end);
-            } catch (Exception e) {
-                throw new RuntimeException("Invalid date format. Use ISO format: yyyy-MM-dd'T'HH:mm:ss");
-            }
-        } else {
-            cars = carService.searchCarsByBrand(brand);
+            return toPageResponse(carService.searchCarsByBrandAndDate(
+                    brand, parseDate(startDate), parseDate(endDate), CarSort.fromParam(sort), cursor, limit, selection), selection);
         }
-        return ResponseEntity.ok(cars);
+        return toListResponse(carService.searchCarsByBrand(brand, CarSort.fromParam(sort), selection), selection);
+    }
+
+    // Full-text search over brand, model, location and description, best match first
+    @GetMapping("/public/search/text")
+    public ResponseEntity<MappingJacksonValue> searchByText(
+            @RequestParam String q,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "20") Integer limit,
+            @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, CarResponseDTO.class);
+        return toListResponse(carService.searchCarsByText(q,
+                startDate != null ? parseDate(startDate) : null,
+                endDate != null ? parseDate(endDate) : null, limit, selection), selection);
     }
 
     @GetMapping("/public/search/price")
-    public ResponseEntity<List<CarResponseDTO>> searchByPriceRange(
+    public ResponseEntity<MappingJacksonValue> searchByPriceRange(
             @RequestParam Double minPrice,
             @RequestParam Double maxPrice,
             @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate) {
-
-        List<CarResponseDTO> cars;
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields, CarResponseDTO.class);
 
         if (startDate != null && endDate != null) {
-            try {
-                DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-                LocalDateTime start = LocalDateTime.parse(startDate, formatter);
-                LocalDateTime end = LocalDateTime.parse(endDate, formatter);
-                cars = carService.searchCarsByPriceRangeAndDate(minPrice, maxPrice, start, end);
-            } catch (Exception e) {
-                throw new RuntimeException("Invalid date format. Use ISO format: yyyy-MM-dd'T'HH:mm:ss");
-            }
-        } else {
-            cars = carService.searchCarsByPriceRange(minPrice, maxPrice);
+            return toPageResponse(carService.searchCarsByPriceRangeAndDate(
+                    minPrice, maxPrice, parseDate(startDate), parseDate(endDate), CarSort.fromParam(sort), cursor, limit, selection), selection);
         }
-        return ResponseEntity.ok(cars);
+        return toListResponse(carService.searchCarsByPriceRange(minPrice, maxPrice, CarSort.fromParam(sort), selection), selection);
+    }
+
+    private LocalDateTime parseDate(String value) {
+        try {
+            return LocalDateTime.parse(value, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Invalid date format. Use ISO format: yyyy-MM-dd'T'HH:mm:ss");
+        }
+    }
+
+    private CarSearchCriteria toCriteria(String location, String brand, Double minPrice, Double maxPrice,
+                                         Integer year, String color, String startDate, String endDate) {
+        CarSearchCriteria criteria = new CarSearchCriteria();
+        criteria.setLocation(location);
+        criteria.setBrand(brand);
+        criteria.setMinPrice(minPrice);
+        criteria.setMaxPrice(maxPrice);
+        criteria.setYear(year);
+        criteria.setColor(color);
+        criteria.setStartDate(startDate != null ? parseDate(startDate) : null);
+        criteria.setEndDate(endDate != null ? parseDate(endDate) : null);
+        return criteria;
+    }
+
+    // Search results count as impressions for the popularity counters
+    private ResponseEntity<MappingJacksonValue> toListResponse(List<CarResponseDTO> cars, FieldSelection fields) {
+        recordImpressions(cars);
+        return ResponseEntity.ok(SparseFields.filter(cars, fields));
+    }
+
+    private ResponseEntity<MappingJacksonValue> toPageResponse(CarPageDTO page, FieldSelection fields) {
+        recordImpressions(page.getCars());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(SparseFields.filter(page.getCars(), fields));
+    }
+
+    private void recordImpressions(List<CarResponseDTO> cars) {
+        carPopularityCounters.recordImpressions(cars.stream().map(CarResponseDTO::getId).toList());
     }
 
+    /**
+     * Serves a pre-serialized snapshot, answering 304 when If-None-Match carries its ETag
+     */
+    private ResponseEntity<byte[]> toSnapshotResponse(CatalogSnapshot snapshot, String acceptEncoding,
+                                                      WebRequest webRequest) {
+        boolean gzip = snapshot.hasGzip() && acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = snapshot.etag(gzip);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzipBody());
+        }
+        return response.body(snapshot.body());
+    }
 }
\ No newline at end of file
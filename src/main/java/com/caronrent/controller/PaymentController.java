@@ -83,6 +83,14 @@ public class PaymentController {
 
             Booking booking = paymentService.verifyPayment(request);
 
+            if ("REFUNDED".equals(booking.getPaymentStatus())) {
+                return ResponseEntity.badRequest().body(Map.of(
+                        "error", "Payment verification failed",
+                        "message", "Booking hold expired before payment. The payment has been refunded.",
+                        "status", "refunded"
+                ));
+            }
+
             System.out.println("✅ Payment verified successfully!");
             System.out.println("   Booking Status: " + booking.getStatus());
             System.out.println("   Payment Status: " + booking.getPaymentStatus());
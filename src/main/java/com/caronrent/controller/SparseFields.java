@@ -0,0 +1,25 @@
+package com.caronrent.controller;
+
+import com.caronrent.dto.FieldSelection;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+/**
+ * Serialization side of the {@code fields=} parameter: drops every property of the
+ * filtered DTOs that was not selected.
+ */
+final class SparseFields {
+
+    private SparseFields() {
+    }
+
+    static MappingJacksonValue filter(Object body, FieldSelection fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        if (!fields.isAll()) {
+            value.setFilters(new SimpleFilterProvider().addFilter(FieldSelection.FILTER_ID,
+                    SimpleBeanPropertyFilter.filterOutAllExcept(fields.getFields())));
+        }
+        return value;
+    }
+}
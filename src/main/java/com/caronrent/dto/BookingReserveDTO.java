@@ -0,0 +1,13 @@
+package com.caronrent.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// JSON-only first step of a two-phase booking; documents follow on /user/{id}/documents
+@Data
+public class BookingReserveDTO {
+    private String carId;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private String specialRequests;
+}
@@ -1,9 +1,11 @@
 package com.caronrent.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.Data;
 import java.time.LocalDateTime;
 
 @Data
+@JsonFilter(FieldSelection.FILTER_ID)
 public class BookingResponseDTO {
     private String id;
     private String carId;
@@ -30,4 +32,6 @@ public class BookingResponseDTO {
     private LocalDateTime updatedAt;
     private LocalDateTime confirmedAt;
     private LocalDateTime cancelledAt;
+    // Deadline for attaching documents while the booking is DOCUMENTS_PENDING
+    private LocalDateTime holdExpiresAt;
 }
\ No newline at end of file
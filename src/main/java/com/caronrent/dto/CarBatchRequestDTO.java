@@ -0,0 +1,10 @@
+package com.caronrent.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CarBatchRequestDTO {
+    private List<String> carIds;
+}
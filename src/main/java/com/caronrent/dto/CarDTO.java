@@ -13,6 +13,8 @@ public class CarDTO {
     private String color;
     private Double dailyRate;
     private String location;
+    private Double latitude;
+    private Double longitude;
     private String description;
     private List<MultipartFile> images; // Changed from imageUrls
 }
\ No newline at end of file
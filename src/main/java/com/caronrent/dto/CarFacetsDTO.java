@@ -0,0 +1,14 @@
+package com.caronrent.dto;
+
+import lombok.Data;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class CarFacetsDTO {
+    private Long totalCars;
+    private Map<String, Long> brands;      // Most common first
+    private Map<String, Long> locations;   // Most common first
+    private Map<Integer, Long> years;      // Newest first
+    private List<PriceBucketDTO> priceBuckets;
+}
@@ -0,0 +1,12 @@
+package com.caronrent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CarPageDTO {
+    private List<CarResponseDTO> cars;
+    private String nextCursor;  // Encrypted id of the last car, null on the last page
+}
@@ -1,10 +1,12 @@
 package com.caronrent.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.Data;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
+@JsonFilter(FieldSelection.FILTER_ID)
 public class CarResponseDTO {
     private String id;  // Encrypted or string representation
     private String brand;
@@ -14,6 +16,8 @@ public class CarResponseDTO {
     private String color;
     private Double dailyRate;
     private String location;
+    private Double latitude;
+    private Double longitude;
     private String description;
     private Boolean isAvailable;
     private Boolean isActive;
@@ -0,0 +1,17 @@
+package com.caronrent.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+public class CarSearchCriteria {
+    // Every field is optional; null means "don't filter on it"
+    private String location;
+    private String brand;
+    private Double minPrice;
+    private Double maxPrice;
+    private Integer year;
+    private String color;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+}
@@ -0,0 +1,47 @@
+package com.caronrent.dto;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Sort orders accepted by the public search endpoints (sort=price_asc etc.).
+ * Ties are broken by car id in the same direction so keyset pages stay stable.
+ */
+public enum CarSort {
+    PRICE_ASC("dailyRate", false),
+    PRICE_DESC("dailyRate", true),
+    NEWEST("createdAt", true),
+    YEAR("year", true),
+    POPULARITY("bookingCount", true);
+
+    private final String property;
+    private final boolean descending;
+
+    CarSort(String property, boolean descending) {
+        this.property = property;
+        this.descending = descending;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Parses the request parameter; null or blank means the default (id) order
+     */
+    public static CarSort fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return Arrays.stream(values())
+                .filter(sort -> sort.name().equalsIgnoreCase(value.trim()))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Invalid sort. Use one of: " + Arrays.stream(values())
+                        .map(sort -> sort.name().toLowerCase())
+                        .collect(Collectors.joining(", "))));
+    }
+}
@@ -0,0 +1,70 @@
+package com.caronrent.dto;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Parsed {@code fields=} parameter: the response DTO properties a list endpoint should
+ * load and serialize. The id is always included.
+ */
+public final class FieldSelection {
+    // @JsonFilter id on the DTOs that support sparse fieldsets
+    public static final String FILTER_ID = "fields";
+
+    public static final FieldSelection ALL = new FieldSelection(null);
+
+    private final Set<String> fields;
+
+    private FieldSelection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Parses a comma-separated list of property names of the given DTO type;
+     * blank means every field
+     */
+    public static FieldSelection parse(String param, Class<?> dtoType) {
+        if (param == null || param.isBlank()) {
+            return ALL;
+        }
+        Set<String> allowed = new TreeSet<>();
+        for (Field field : dtoType.getDeclaredFields()) {
+            allowed.add(field.getName());
+        }
+
+        Set<String> fields = new LinkedHashSet<>();
+        fields.add("id");
+        for (String name : param.split(",")) {
+            String field = name.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(field)) {
+                throw new RuntimeException("Unknown field: " + field + ". Use any of: " + String.join(", ", allowed));
+            }
+            fields.add(field);
+        }
+        return new FieldSelection(Collections.unmodifiableSet(fields));
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    // Selected property names; only meaningful when isAll() is false
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return fields == null ? "*" : String.join(",", fields);
+    }
+}
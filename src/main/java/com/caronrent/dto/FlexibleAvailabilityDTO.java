@@ -0,0 +1,11 @@
+package com.caronrent.dto;
+
+import lombok.Data;
+
+@Data
+public class FlexibleAvailabilityDTO {
+    private CarResponseDTO car;
+    private FlexibleWindowDTO earliest;   // First free window within the tolerance
+    private FlexibleWindowDTO cheapest;   // Lowest total, ties broken by closeness to the requested start
+    private Integer feasibleWindows;
+}
@@ -0,0 +1,14 @@
+package com.caronrent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class FlexibleWindowDTO {
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private Integer totalDays;
+    private Double totalAmount;
+}
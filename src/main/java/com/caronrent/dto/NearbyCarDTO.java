@@ -0,0 +1,11 @@
+package com.caronrent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class NearbyCarDTO {
+    private CarResponseDTO car;
+    private Double distanceKm;
+}
@@ -0,0 +1,12 @@
+package com.caronrent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PriceBucketDTO {
+    private Double minPrice;  // Inclusive
+    private Double maxPrice;  // Exclusive
+    private Long count;
+}
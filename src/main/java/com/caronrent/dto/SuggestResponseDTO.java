@@ -0,0 +1,11 @@
+package com.caronrent.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class SuggestResponseDTO {
+    private List<SuggestionDTO> locations;
+    private List<SuggestionDTO> brands;
+    private List<SuggestionDTO> models;  // "Brand Model" pairs
+}
@@ -0,0 +1,11 @@
+package com.caronrent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SuggestionDTO {
+    private String value;
+    private Integer count;  // Number of active listings
+}
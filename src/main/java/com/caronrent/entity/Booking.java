@@ -6,9 +6,22 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "bookings")
+// List reads join car, car owner and user in the same select (all used by the DTO)
+@NamedEntityGraph(name = Booking.WITH_CAR_AND_USER,
+        attributeNodes = {@NamedAttributeNode(value = "car", subgraph = "car"), @NamedAttributeNode("user")},
+        subgraphs = @NamedSubgraph(name = "car", attributeNodes = @NamedAttributeNode("owner")))
+@Table(name = "bookings", indexes = {
+        // Serves the per-car overlap checks (NOT EXISTS / findOverlappingBookings)
+        @Index(name = "idx_bookings_car_status_dates", columnList = "car_id, status, startDate, endDate"),
+        // Serves the hold-expiry wheel's startup load
+        @Index(name = "idx_bookings_status_hold", columnList = "status, holdExpiresAt"),
+        // Serves the completion sweep (CONFIRMED bookings past their end date)
+        @Index(name = "idx_bookings_status_end", columnList = "status, endDate")
+})
 @Data
 public class Booking {
+    public static final String WITH_CAR_AND_USER = "Booking.withCarAndUser";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -34,7 +47,7 @@ public class Booking {
     private Double totalAmount;
 
     @Column(nullable = false)
-    private String status; // PENDING, PAYMENT_PENDING, CONFIRMED, CANCELLED, COMPLETED
+    private String status; // PENDING, DOCUMENTS_PENDING, PAYMENT_PENDING, CONFIRMED, CANCELLED, COMPLETED
 
     @Column(nullable = false)
     private String paymentStatus; // PENDING, PAID, FAILED, REFUNDED
@@ -50,16 +63,19 @@ public class Booking {
 
     private String specialRequests;
 
-    // Add these three mandatory document fields
-    @Column(name = "driving_license_url", nullable = false)
+    // Mandatory documents; empty only while a reserved booking is DOCUMENTS_PENDING
+    @Column(name = "driving_license_url")
     private String drivingLicenseUrl;
 
-    @Column(name = "aadhar_card_url", nullable = false)
+    @Column(name = "aadhar_card_url")
     private String aadharCardUrl;
 
-    @Column(name = "police_verification_url", nullable = false)
+    @Column(name = "police_verification_url")
     private String policeVerificationUrl;
 
+    // DOCUMENTS_PENDING / PAYMENT_PENDING bookings are cancelled if they have not moved on by then
+    private LocalDateTime holdExpiresAt;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private LocalDateTime confirmedAt;
@@ -69,7 +85,9 @@ public class Booking {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
-        status = "PAYMENT_PENDING";
+        if (status == null) {
+            status = "PAYMENT_PENDING";
+        }
         paymentStatus = "PENDING";
         amountPaid = 0.0;
     }
@@ -0,0 +1,39 @@
+package com.caronrent.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+
+// One row per car and hour slot held by an active booking; the primary key turns a double booking
+// into a constraint violation. Written and released by BookingSlotLedger.
+@Entity
+@Table(name = "booking_slots", indexes = {
+        @Index(name = "idx_booking_slots_booking", columnList = "booking_id")
+})
+@IdClass(BookingSlot.Key.class)
+@Data
+public class BookingSlot {
+    @Id
+    @Column(name = "car_id")
+    private Long carId;
+
+    @Id
+    private Long slot; // hours since the epoch (UTC)
+
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+
+    // The hour is only partly covered, so bookings that do not overlap may share it
+    @Column(nullable = false)
+    private boolean partial;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long carId;
+        private Long slot;
+    }
+}
@@ -3,13 +3,31 @@ package com.caronrent.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "cars")
+// List reads join the owner in the same select (the DTO needs owner.email)
+@NamedEntityGraph(name = Car.WITH_OWNER, attributeNodes = @NamedAttributeNode("owner"))
+// Batch lookups also pull the images in the same select
+@NamedEntityGraph(name = Car.WITH_OWNER_AND_IMAGES,
+        attributeNodes = {@NamedAttributeNode("owner"), @NamedAttributeNode("images")})
+@Table(name = "cars", indexes = {
+        // Leading columns match every public search; location/daily_rate narrow the range
+        @Index(name = "idx_cars_listing", columnList = "isActive, isAvailable, location, dailyRate"),
+        // Sorted /public/search pages (listed cars, (key, id) > cursor ORDER BY key, id LIMIT n) range-scan
+        // these in order instead of sorting; date-window searches sort in memory (CarSortIndex).
+        // None for popularity: bookingCount changes on every booking, so those pages sort the filtered rows.
+        @Index(name = "idx_cars_listing_price", columnList = "isActive, isAvailable, dailyRate, id"),
+        @Index(name = "idx_cars_listing_created", columnList = "isActive, isAvailable, createdAt, id"),
+        @Index(name = "idx_cars_listing_year", columnList = "isActive, isAvailable, year, id")
+})
 @Data
 public class Car {
+    public static final String WITH_OWNER = "Car.withOwner";
+    public static final String WITH_OWNER_AND_IMAGES = "Car.withOwnerAndImages";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -39,12 +57,20 @@ public class Car {
     @Column(nullable = false)
     private String location;
 
+    // Optional pickup coordinates, used by the nearby search
+    private Double latitude;
+    private Double longitude;
+
     @Column(nullable = false)
     private Boolean isAvailable = true;
 
     @Column(nullable = false)
     private Boolean isActive = true;
 
+    // Bookings ever created for this car (sort=popularity)
+    @Column(nullable = false)
+    private Long bookingCount = 0L;
+
     @Lob
     private String description;
 
@@ -52,7 +78,9 @@ public class Car {
     @JsonIgnore
     private List<Booking> bookings;
 
+    // Loaded for up to 100 cars per select instead of one select per car
     @OneToMany(mappedBy = "car", cascade = CascadeType.ALL)
+    @BatchSize(size = 100)
     private List<CarImage> images;
 
     private LocalDateTime createdAt;
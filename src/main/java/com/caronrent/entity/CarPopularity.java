@@ -0,0 +1,22 @@
+package com.caronrent.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Lifetime view/impression totals per car, written in batches by CarPopularityCounters
+@Entity
+@Table(name = "car_popularity")
+@Data
+public class CarPopularity {
+    @Id
+    private Long carId;
+
+    @Column(nullable = false)
+    private Long viewCount = 0L;
+
+    @Column(nullable = false)
+    private Long impressionCount = 0L;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,51 @@
+package com.caronrent.event;
+
+import com.caronrent.entity.Booking;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published whenever a booking is created or changes status.
+ * Carries a snapshot of the fields in-memory indexes care about,
+ * so listeners never touch the (possibly detached) entity.
+ */
+@Getter
+public class BookingChangedEvent {
+    private final Long bookingId;
+    private final Long carId;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+    private final String status;
+    // Set while the booking waits for documents or payment
+    private final LocalDateTime holdExpiresAt;
+
+    public BookingChangedEvent(Booking booking) {
+        this.bookingId = booking.getId();
+        this.carId = booking.getCar().getId();
+        this.startDate = booking.getStartDate();
+        this.endDate = booking.getEndDate();
+        this.status = booking.getStatus();
+        this.holdExpiresAt = booking.getHoldExpiresAt();
+    }
+
+    /**
+     * For bulk updates that change bookings without loading them
+     */
+    public BookingChangedEvent(Long bookingId, Long carId, LocalDateTime startDate, LocalDateTime endDate,
+                               String status) {
+        this.bookingId = bookingId;
+        this.carId = carId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.status = status;
+        this.holdExpiresAt = null;
+    }
+
+    /**
+     * Active bookings block the car for their date range
+     */
+    public boolean isActive() {
+        return !"CANCELLED".equals(status) && !"COMPLETED".equals(status);
+    }
+}
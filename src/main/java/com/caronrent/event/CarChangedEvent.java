@@ -0,0 +1,45 @@
+package com.caronrent.event;
+
+import com.caronrent.entity.Car;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a car is added, its status changes or it is deleted.
+ * Like BookingChangedEvent it carries a snapshot of the indexed fields.
+ */
+@Getter
+public class CarChangedEvent {
+    private final Long carId;
+    private final String brand;
+    private final String model;
+    private final String location;
+    private final String description;
+    private final Double latitude;
+    private final Double longitude;
+    private final Double dailyRate;
+    private final Integer year;
+    private final LocalDateTime createdAt;
+    private final Long bookingCount;
+    private final Boolean isActive;
+    private final Boolean isAvailable;
+    private final boolean deleted;
+
+    public CarChangedEvent(Car car, boolean deleted) {
+        this.carId = car.getId();
+        this.brand = car.getBrand();
+        this.model = car.getModel();
+        this.location = car.getLocation();
+        this.description = car.getDescription();
+        this.latitude = car.getLatitude();
+        this.longitude = car.getLongitude();
+        this.dailyRate = car.getDailyRate();
+        this.year = car.getYear();
+        this.createdAt = car.getCreatedAt();
+        this.bookingCount = car.getBookingCount();
+        this.isActive = car.getIsActive();
+        this.isAvailable = car.getIsAvailable();
+        this.deleted = deleted;
+    }
+}
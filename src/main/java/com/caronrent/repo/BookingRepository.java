@@ -3,19 +3,39 @@ package com.caronrent.repo;
 import com.caronrent.entity.Booking;
 import com.caronrent.entity.Car;
 import com.caronrent.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
+    @EntityGraph(Booking.WITH_CAR_AND_USER)
     List<Booking> findByUser(User user);
+
+    @EntityGraph(Booking.WITH_CAR_AND_USER)
     List<Booking> findByCarOwner(User owner);
+
     List<Booking> findByCar(Car car);
     List<Booking> findByStatus(String status);
+
+    // Row lock for payment verification, so hold expiry and payment cannot interleave
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.id = :id")
+    Optional<Booking> findByIdForUpdate(@Param("id") Long id);
     List<Booking> findByUserEmail(String email);
     List<Booking> findByCarOwnerEmail(String email);
 
@@ -31,4 +51,64 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
     // ========== END UPDATE ==========
+
+    // Row-by-row cursors for the NDJSON streaming endpoints
+    @EntityGraph(Booking.WITH_CAR_AND_USER)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT b FROM Booking b WHERE b.user.email = :email ORDER BY b.id")
+    Stream<Booking> streamByUserEmail(@Param("email") String email);
+
+    @EntityGraph(Booking.WITH_CAR_AND_USER)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT b FROM Booking b WHERE b.car.owner.email = :email ORDER BY b.id")
+    Stream<Booking> streamByCarOwnerEmail(@Param("email") String email);
+
+    // Lightweight rows for the in-memory availability index (no entity hydration)
+    @Query("SELECT b.id AS id, b.car.id AS carId, b.startDate AS startDate, b.endDate AS endDate " +
+            "FROM Booking b WHERE b.status NOT IN ('CANCELLED', 'COMPLETED')")
+    List<BookingIntervalView> findActiveBookingIntervals();
+
+    // Bookings waiting for documents or payment, to rebuild the hold-expiry wheel on startup
+    // (bookings made before holds existed have no holdExpiresAt)
+    @Query("SELECT b.id AS id, b.holdExpiresAt AS holdExpiresAt, b.createdAt AS createdAt FROM Booking b " +
+            "WHERE b.status IN ('DOCUMENTS_PENDING', 'PAYMENT_PENDING')")
+    List<BookingHoldView> findHeldBookings();
+
+    @Modifying
+    @Query("UPDATE Booking b SET b.holdExpiresAt = :holdExpiresAt WHERE b.id = :id AND b.holdExpiresAt IS NULL")
+    int backfillHoldExpiry(@Param("id") Long id, @Param("holdExpiresAt") LocalDateTime holdExpiresAt);
+
+    // The given holds that are still unpaid and past their deadline, locked until they are cancelled
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b.id AS id, b.car.id AS carId, b.startDate AS startDate, b.endDate AS endDate " +
+            "FROM Booking b WHERE b.id IN :ids AND b.status IN ('DOCUMENTS_PENDING', 'PAYMENT_PENDING') " +
+            "AND b.holdExpiresAt <= :now")
+    List<BookingIntervalView> lockExpiredHolds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'CANCELLED', b.paymentStatus = 'CANCELLED', b.holdExpiresAt = NULL, " +
+            "b.cancelledAt = :now, b.updatedAt = :now WHERE b.id IN :ids")
+    int cancelHolds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Confirmed bookings whose end date has passed (idx_bookings_status_end), one locked chunk at a time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b.id AS id, b.car.id AS carId, b.startDate AS startDate, b.endDate AS endDate " +
+            "FROM Booking b WHERE b.status = 'CONFIRMED' AND b.endDate < :now")
+    List<BookingIntervalView> findOverdueConfirmed(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @EntityGraph(Booking.WITH_CAR_AND_USER)
+    List<Booking> findByIdIn(Collection<Long> ids);
+
+    interface BookingHoldView {
+        Long getId();
+        LocalDateTime getHoldExpiresAt();
+        LocalDateTime getCreatedAt();
+    }
+
+    interface BookingIntervalView {
+        Long getId();
+        Long getCarId();
+        LocalDateTime getStartDate();
+        LocalDateTime getEndDate();
+    }
 }
\ No newline at end of file
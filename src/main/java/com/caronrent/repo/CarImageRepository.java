@@ -3,11 +3,23 @@ package com.caronrent.repo;
 import com.caronrent.entity.CarImage;
 import com.caronrent.entity.Car;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CarImageRepository extends JpaRepository<CarImage, Long> {
     List<CarImage> findByCar(Car car);
     void deleteByCar(Car car);
+
+    // Image URLs for a whole page of cars in one query (sparse-fieldset list reads)
+    @Query("SELECT i.car.id AS carId, i.imageUrl AS imageUrl FROM CarImage i WHERE i.car.id IN :carIds ORDER BY i.id")
+    List<CarImageUrlView> findUrlsByCarIdIn(@Param("carIds") Collection<Long> carIds);
+
+    interface CarImageUrlView {
+        Long getCarId();
+        String getImageUrl();
+    }
 }
\ No newline at end of file
@@ -2,16 +2,121 @@ package com.caronrent.repo;
 
 import com.caronrent.entity.Car;
 import com.caronrent.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface CarRepository extends JpaRepository<Car, Long> {
+public interface CarRepository extends JpaRepository<Car, Long>, CarSearchRepository {
     List<Car> findByOwnerAndIsActiveTrue(User owner);
+
+    // Read paths that feed CarResponseDTO fetch the owner with the cars
+    @EntityGraph(Car.WITH_OWNER)
     List<Car> findByOwner(User owner);
+
+    @EntityGraph(Car.WITH_OWNER)
     List<Car> findByIsAvailableTrueAndIsActiveTrue();
-    List<Car> findByLocationContainingIgnoreCaseAndIsAvailableTrueAndIsActiveTrue(String location);
-    List<Car> findByBrandContainingIgnoreCaseAndIsAvailableTrueAndIsActiveTrue(String brand);
-    List<Car> findByDailyRateBetweenAndIsAvailableTrueAndIsActiveTrue(Double minRate, Double maxRate);
-}
\ No newline at end of file
+
+    @EntityGraph(Car.WITH_OWNER)
+    List<Car> findByDailyRateBetweenAndIsAvailableTrueAndIsActiveTrue(Double minRate, Double maxRate, Sort sort);
+
+    @EntityGraph(Car.WITH_OWNER)
+    @Override
+    List<Car> findAllById(Iterable<Long> ids);
+
+    @EntityGraph(Car.WITH_OWNER_AND_IMAGES)
+    List<Car> findByIdIn(Collection<Long> ids);
+
+    // Bulk counterpart of car.setIsAvailable(true) when bookings are cancelled without loading them;
+    // a car that still has another active booking stays unavailable
+    @Modifying
+    @Query("UPDATE Car c SET c.isAvailable = true, c.updatedAt = :now WHERE c.id IN :ids " +
+            "AND NOT EXISTS (SELECT 1 FROM Booking b WHERE b.car.id = c.id " +
+            "AND b.status IN ('DOCUMENTS_PENDING', 'PAYMENT_PENDING', 'PAYMENT_CONFIRMED', 'CONFIRMED'))")
+    int markAvailable(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Row-by-row cursors for the NDJSON streaming endpoints
+    @EntityGraph(Car.WITH_OWNER)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT c FROM Car c WHERE c.owner.email = :email ORDER BY c.id")
+    Stream<Car> streamByOwnerEmail(@Param("email") String email);
+
+    @EntityGraph(Car.WITH_OWNER)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT c FROM Car c WHERE c.isAvailable = true AND c.isActive = true ORDER BY c.id")
+    Stream<Car> streamListedCars();
+
+    // Lightweight rows used to (re)build the in-memory search indexes
+    @Query("SELECT c.id AS id, c.brand AS brand, c.model AS model, c.location AS location, " +
+            "c.latitude AS latitude, c.longitude AS longitude, " +
+            "c.dailyRate AS dailyRate, c.year AS year, c.createdAt AS createdAt, c.bookingCount AS bookingCount, " +
+            "c.isActive AS isActive, c.isAvailable AS isAvailable FROM Car c")
+    List<CarListingView> findAllListingViews();
+
+    interface CarListingView {
+        Long getId();
+        String getBrand();
+        String getModel();
+        String getLocation();
+        Double getLatitude();
+        Double getLongitude();
+        Double getDailyRate();
+        Integer getYear();
+        LocalDateTime getCreatedAt();
+        Long getBookingCount();
+        Boolean getIsActive();
+        Boolean getIsAvailable();
+    }
+
+    // Rows for a full rebuild of the full-text index
+    @Query("SELECT c.id AS id, c.brand AS brand, c.model AS model, c.location AS location, " +
+            "c.description AS description FROM Car c")
+    List<CarTextView> findAllTextViews();
+
+    interface CarTextView {
+        Long getId();
+        String getBrand();
+        String getModel();
+        String getLocation();
+        String getDescription();
+    }
+
+    // ========== Date-filtered searches ==========
+    // Ids only, one keyset batch at a time: overlap exclusion runs in the database (NOT EXISTS
+    // against bookings), pass the last seen car id as cursor (0 for the first batch), and
+    // SearchResultCache keeps the batches for near-identical windows.
+    String NO_OVERLAPPING_BOOKING = "NOT EXISTS (SELECT b.id FROM Booking b WHERE b.car = c " +
+            "AND b.startDate <= :endDate AND b.endDate >= :startDate " +
+            "AND b.status NOT IN ('CANCELLED', 'COMPLETED'))";
+
+    @Query("SELECT c.id FROM Car c WHERE c.isAvailable = true AND c.isActive = true AND c.id > :cursor AND " +
+            NO_OVERLAPPING_BOOKING + " ORDER BY c.id")
+    List<Long> findAvailableIdsForDates(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("cursor") Long cursor,
+            Pageable pageable);
+
+    @Query("SELECT c.id FROM Car c WHERE c.isAvailable = true AND c.isActive = true AND c.id > :cursor AND " +
+            "c.dailyRate BETWEEN :minRate AND :maxRate AND " +
+            NO_OVERLAPPING_BOOKING + " ORDER BY c.id")
+    List<Long> findAvailableIdsByPriceRangeForDates(
+            @Param("minRate") Double minRate,
+            @Param("maxRate") Double maxRate,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("cursor") Long cursor,
+            Pageable pageable);
+}
@@ -0,0 +1,21 @@
+package com.caronrent.repo;
+
+import com.caronrent.entity.Car;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Custom fragment of CarRepository for dynamic (Specification based) searches.
+ */
+public interface CarSearchRepository {
+    // Plain LIMIT query, unlike findAll(spec, pageable) it never issues a count query
+    List<Car> search(Specification<Car> spec, Sort sort, int limit);
+
+    // One GROUP BY over the matching cars; callers roll the rows up into per-facet counts
+    List<FacetRow> facetCounts(Specification<Car> spec);
+
+    record FacetRow(String brand, String location, Integer year, Double dailyRate, long count) {
+    }
+}
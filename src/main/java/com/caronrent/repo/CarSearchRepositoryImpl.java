@@ -0,0 +1,61 @@
+package com.caronrent.repo;
+
+import com.caronrent.entity.Car;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+public class CarSearchRepositoryImpl implements CarSearchRepository {
+
+    private final EntityManager entityManager;
+
+    public CarSearchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Car> search(Specification<Car> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Car> query = cb.createQuery(Car.class);
+        Root<Car> root = query.from(Car.class);
+        query.select(root).where(spec.toPredicate(root, query, cb));
+        query.orderBy(toOrders(sort, root, cb));
+
+        TypedQuery<Car> typedQuery = entityManager.createQuery(query);
+        typedQuery.setMaxResults(limit);
+        typedQuery.setHint(AvailableHints.HINT_SPEC_FETCH_GRAPH, entityManager.getEntityGraph(Car.WITH_OWNER));
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    public List<FacetRow> facetCounts(Specification<Car> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Car> root = query.from(Car.class);
+        Expression<String> brand = root.get("brand");
+        Expression<String> location = root.get("location");
+        Expression<Integer> year = root.get("year");
+        Expression<Double> dailyRate = root.get("dailyRate");
+        Expression<Long> count = cb.count(root);
+
+        query.multiselect(brand, location, year, dailyRate, count)
+                .where(spec.toPredicate(root, query, cb))
+                .groupBy(brand, location, year, dailyRate);
+
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(row -> new FacetRow(row.get(brand), row.get(location), row.get(year),
+                        row.get(dailyRate), row.get(count)))
+                .toList();
+    }
+}
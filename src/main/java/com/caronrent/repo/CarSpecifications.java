@@ -0,0 +1,132 @@
+package com.caronrent.repo;
+
+import com.caronrent.dto.CarSearchCriteria;
+import com.caronrent.dto.CarSort;
+import com.caronrent.entity.Booking;
+import com.caronrent.entity.Car;
+import com.caronrent.entity.User;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Composable filters for the unified car search. Predicates are ordered to match
+ * the cars(is_active, is_available, location, daily_rate) index.
+ */
+public final class CarSpecifications {
+
+    private CarSpecifications() {
+    }
+
+    public static Specification<Car> fromCriteria(CarSearchCriteria criteria) {
+        Specification<Car> spec = isListed();
+        if (hasText(criteria.getLocation())) {
+            spec = spec.and(locationContains(criteria.getLocation()));
+        }
+        if (criteria.getMinPrice() != null) {
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dailyRate"), criteria.getMinPrice()));
+        }
+        if (criteria.getMaxPrice() != null) {
+            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("dailyRate"), criteria.getMaxPrice()));
+        }
+        if (hasText(criteria.getBrand())) {
+            spec = spec.and(brandContains(criteria.getBrand()));
+        }
+        if (criteria.getYear() != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("year"), criteria.getYear()));
+        }
+        if (hasText(criteria.getColor())) {
+            spec = spec.and((root, query, cb) -> cb.equal(cb.lower(root.get("color")), criteria.getColor().trim().toLowerCase()));
+        }
+        if (criteria.getStartDate() != null && criteria.getEndDate() != null) {
+            spec = spec.and(freeBetween(criteria.getStartDate(), criteria.getEndDate()));
+        }
+        return spec;
+    }
+
+    public static Specification<Car> isListed() {
+        return (root, query, cb) -> cb.and(
+                cb.isTrue(root.get("isActive")),
+                cb.isTrue(root.get("isAvailable")));
+    }
+
+    public static Specification<Car> ownedBy(User owner) {
+        return (root, query, cb) -> cb.equal(root.get("owner"), owner);
+    }
+
+    public static Specification<Car> idIn(Collection<Long> carIds) {
+        return (root, query, cb) -> root.get("id").in(carIds);
+    }
+
+    public static Specification<Car> dailyRateBetween(Double minRate, Double maxRate) {
+        return (root, query, cb) -> cb.between(root.get("dailyRate"), minRate, maxRate);
+    }
+
+    public static Specification<Car> locationContains(String location) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get("location")), "%" + location.trim().toLowerCase() + "%");
+    }
+
+    public static Specification<Car> brandContains(String brand) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get("brand")), "%" + brand.trim().toLowerCase() + "%");
+    }
+
+    /**
+     * No active booking overlaps [startDate, endDate] (same rule as findOverlappingBookings)
+     */
+    public static Specification<Car> freeBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return (root, query, cb) -> {
+            Subquery<Long> overlapping = query.subquery(Long.class);
+            var booking = overlapping.from(Booking.class);
+            overlapping.select(booking.get("id")).where(
+                    cb.equal(booking.get("car"), root),
+                    booking.get("status").in(List.of("CANCELLED", "COMPLETED")).not(),
+                    cb.lessThanOrEqualTo(booking.get("startDate"), endDate),
+                    cb.greaterThanOrEqualTo(booking.get("endDate"), startDate));
+            return cb.not(cb.exists(overlapping));
+        };
+    }
+
+    /**
+     * Keyset cursor: only cars after the last id of the previous page
+     */
+    public static Specification<Car> idAfter(Long cursor) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), cursor);
+    }
+
+    /**
+     * Keyset cursor for a sorted search: cars after (sortKey, id) in the sort direction
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Car> after(CarSort sort, Comparable sortKey, Long carId) {
+        return (root, query, cb) -> {
+            Expression<Comparable> key = root.get(sort.getProperty());
+            Expression<Long> id = root.get("id");
+            if (sort.isDescending()) {
+                return cb.or(cb.lessThan(key, sortKey),
+                        cb.and(cb.equal(key, sortKey), cb.lessThan(id, carId)));
+            }
+            return cb.or(cb.greaterThan(key, sortKey),
+                    cb.and(cb.equal(key, sortKey), cb.greaterThan(id, carId)));
+        };
+    }
+
+    /**
+     * ORDER BY for a sort, with the id tie-breaker in the same direction (matches the indexes)
+     */
+    public static Sort orderOf(CarSort sort) {
+        if (sort == null) {
+            return Sort.by("id");
+        }
+        Sort.Direction direction = sort.isDescending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(direction, sort.getProperty(), "id");
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,61 @@
+package com.caronrent.repo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+/**
+ * Column projections for sparse-fieldset list reads: selects only the requested
+ * attributes (no entity hydration), joining to-one associations only when a
+ * selected path goes through them.
+ */
+@Repository
+public class ColumnQueries {
+
+    private final EntityManager entityManager;
+
+    public ColumnQueries(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * @param columns tuple alias to attribute path, e.g. {@code "ownerEmail" -> "owner.email"}
+     */
+    public <T> List<Tuple> select(Class<T> entityType, Specification<T> spec, Map<String, String> columns,
+                                  Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityType);
+
+        List<Selection<?>> selections = new ArrayList<>(columns.size());
+        columns.forEach((alias, attributePath) -> selections.add(path(root, attributePath).alias(alias)));
+        query.multiselect(selections)
+                .where(spec.toPredicate(root, query, cb))
+                .orderBy(toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static Path<?> path(Root<?> root, String attributePath) {
+        Path<?> path = root;
+        for (String attribute : attributePath.split("\\.")) {
+            path = path.get(attribute);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,137 @@
+package com.caronrent.service;
+
+import com.caronrent.entity.Booking;
+import com.caronrent.event.BookingChangedEvent;
+import com.caronrent.repo.BookingRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Moves CONFIRMED bookings whose end date has passed to COMPLETED and makes their
+ * cars available again (what PaymentService.markBookingAsCompleted does for one booking).
+ *
+ * Overdue bookings are read a chunk at a time through idx_bookings_status_end; each
+ * chunk is completed in its own short transaction with JDBC batch updates, so a large
+ * backlog never holds one long transaction. Completion emails are sent afterwards from
+ * a single background worker.
+ */
+@Component
+public class BookingCompletionSweep {
+    private static final String COMPLETE_SQL =
+            "UPDATE bookings SET status = 'COMPLETED', updated_at = ? WHERE id = ? AND status = 'CONFIRMED'";
+    // A car with another active booking (e.g. a later confirmed one) stays unavailable
+    private static final String CAR_AVAILABLE_SQL = "UPDATE cars SET is_available = true, updated_at = ? WHERE id = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM bookings b WHERE b.car_id = ? " +
+            "AND b.status IN ('DOCUMENTS_PENDING', 'PAYMENT_PENDING', 'PAYMENT_CONFIRMED', 'CONFIRMED'))";
+
+    private final BookingRepository bookingRepository;
+    private final BookingSlotLedger bookingSlotLedger;
+    private final PaymentService paymentService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final ExecutorService emailExecutor = Executors.newSingleThreadExecutor();
+
+    @Value("${app.booking.completion-chunk-size:1000}")
+    private int chunkSize;
+
+    public BookingCompletionSweep(BookingRepository bookingRepository, BookingSlotLedger bookingSlotLedger,
+                                  PaymentService paymentService, JdbcTemplate jdbcTemplate,
+                                  ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager) {
+        this.bookingRepository = bookingRepository;
+        this.bookingSlotLedger = bookingSlotLedger;
+        this.paymentService = paymentService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Complete every overdue booking, chunk by chunk; returns how many were completed
+     */
+    @Scheduled(fixedDelayString = "${app.booking.completion-sweep-interval-ms:300000}")
+    public int sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        int completed = 0;
+        try {
+            while (true) {
+                List<Long> chunk = transaction.execute(status -> completeChunk(now));
+                if (chunk == null || chunk.isEmpty()) {
+                    break;
+                }
+                completed += chunk.size();
+                emailExecutor.execute(() -> sendCompletionEmails(chunk));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Booking completion sweep stopped after " + completed + " bookings: " + e.getMessage());
+        }
+        if (completed > 0) {
+            System.out.println("✅ Bookings completed: " + completed);
+        }
+        return completed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        emailExecutor.shutdown();
+    }
+
+    // Completes the next chunk of overdue bookings (locked by the select, so none can change status
+    // in between); completed rows no longer match, so there is no offset
+    private List<Long> completeChunk(LocalDateTime now) {
+        List<BookingRepository.BookingIntervalView> overdue =
+                bookingRepository.findOverdueConfirmed(now, PageRequest.of(0, chunkSize));
+        if (overdue.isEmpty()) {
+            return List.of();
+        }
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(COMPLETE_SQL, overdue, overdue.size(),
+                (statement, booking) -> {
+                    statement.setTimestamp(1, updatedAt);
+                    statement.setLong(2, booking.getId());
+                });
+
+        List<Long> bookingIds = new ArrayList<>(overdue.size());
+        Set<Long> carIds = new LinkedHashSet<>();
+        for (BookingRepository.BookingIntervalView booking : overdue) {
+            bookingIds.add(booking.getId());
+            carIds.add(booking.getCarId());
+            eventPublisher.publishEvent(new BookingChangedEvent(booking.getId(), booking.getCarId(),
+                    booking.getStartDate(), booking.getEndDate(), "COMPLETED"));
+        }
+        jdbcTemplate.batchUpdate(CAR_AVAILABLE_SQL, carIds, carIds.size(),
+                (statement, carId) -> {
+                    statement.setTimestamp(1, updatedAt);
+                    statement.setLong(2, carId);
+                    statement.setLong(3, carId);
+                });
+        bookingSlotLedger.releaseAll(bookingIds);
+        return bookingIds;
+    }
+
+    private void sendCompletionEmails(List<Long> bookingIds) {
+        try {
+            for (Booking booking : bookingRepository.findByIdIn(bookingIds)) {
+                paymentService.sendBookingCompletionEmails(booking);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Failed to send booking completion emails: " + e.getMessage());
+        }
+    }
+}
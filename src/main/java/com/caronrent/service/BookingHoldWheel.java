@@ -0,0 +1,219 @@
+package com.caronrent.service;
+
+import com.caronrent.event.BookingChangedEvent;
+import com.caronrent.repo.BookingRepository;
+import com.caronrent.repo.CarRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hashed timing wheel that cancels DOCUMENTS_PENDING / PAYMENT_PENDING bookings
+ * whose hold has run out, so abandoned bookings stop blocking the car.
+ *
+ * Deadlines come from BookingChangedEvent (and from the bookings table on startup,
+ * where held bookings made before holds existed get createdAt + the payment hold)
+ * and are dropped into the bucket of their tick; each tick only looks at the buckets
+ * it passes instead of scanning bookings. Due bookings are cancelled in batches with
+ * bulk updates, and only if they are still held and past their deadline, so an entry
+ * left behind by a payment or a newer deadline does nothing.
+ */
+@Component
+public class BookingHoldWheel implements CommandLineRunner {
+    private static final int WHEEL_SIZE = 512; // power of two
+    private static final int BATCH_SIZE = 500;
+    private static final Set<String> HELD_STATUSES = Set.of("DOCUMENTS_PENDING", "PAYMENT_PENDING");
+    private static final int MINUTES_KEPT = 60;
+
+    private final BookingRepository bookingRepository;
+    private final CarRepository carRepository;
+    private final BookingSlotLedger bookingSlotLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final long tickMillis;
+    private final long paymentHoldMinutes;
+
+    // Guarded by this
+    private final List<List<Hold>> buckets = new ArrayList<>(WHEEL_SIZE);
+    private long currentTick;
+    private int scheduled;
+
+    private final LongAdder expired = new LongAdder();
+    // Expiry counts of the last MINUTES_KEPT wall-clock minutes, indexed by minute % MINUTES_KEPT; guarded by itself
+    private final long[] expiredByMinute = new long[MINUTES_KEPT];
+    private final long[] minuteOfSlot = new long[MINUTES_KEPT];
+
+    public BookingHoldWheel(BookingRepository bookingRepository, CarRepository carRepository,
+                            BookingSlotLedger bookingSlotLedger, ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.booking.hold-tick-ms:1000}") long tickMillis,
+                            @Value("${app.booking.payment-hold-minutes:30}") long paymentHoldMinutes) {
+        this.bookingRepository = bookingRepository;
+        this.carRepository = carRepository;
+        this.bookingSlotLedger = bookingSlotLedger;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.tickMillis = tickMillis;
+        this.paymentHoldMinutes = paymentHoldMinutes;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    @Override
+    public void run(String... args) {
+        List<BookingRepository.BookingHoldView> holds = bookingRepository.findHeldBookings();
+        int backfilled = 0;
+        for (BookingRepository.BookingHoldView hold : holds) {
+            LocalDateTime deadline = hold.getHoldExpiresAt();
+            if (deadline == null) {
+                deadline = backfill(hold);
+                backfilled++;
+            }
+            schedule(hold.getId(), deadline);
+        }
+        System.out.println("✅ Booking hold wheel loaded: " + holds.size() + " held bookings ("
+                + backfilled + " without a deadline given one)");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        if (event.getHoldExpiresAt() != null && HELD_STATUSES.contains(event.getStatus())) {
+            schedule(event.getBookingId(), event.getHoldExpiresAt());
+        }
+    }
+
+    /**
+     * Check the booking once its hold deadline has passed (on the next tick if it already has)
+     */
+    public synchronized void schedule(Long bookingId, LocalDateTime deadline) {
+        long deadlineMillis = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        buckets.get(bucketOf(tick)).add(new Hold(bookingId, tick));
+        scheduled++;
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking.hold-tick-ms:1000}")
+    public void advance() {
+        List<Long> due = takeDue(System.currentTimeMillis() / tickMillis);
+        for (int from = 0; from < due.size(); from += BATCH_SIZE) {
+            expire(due.subList(from, Math.min(due.size(), from + BATCH_SIZE)));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long minute = System.currentTimeMillis() / 60_000;
+        List<Long> perMinute = new ArrayList<>(MINUTES_KEPT);
+        synchronized (expiredByMinute) {
+            // Newest first; minutes without expiries (or older than the ring) count as 0
+            for (int age = 0; age < MINUTES_KEPT; age++) {
+                int slot = (int) ((minute - age) % MINUTES_KEPT);
+                perMinute.add(minuteOfSlot[slot] == minute - age ? expiredByMinute[slot] : 0);
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            // Wheel entries; a booking whose deadline moved can have more than one
+            stats.put("scheduled", scheduled);
+        }
+        stats.put("expired", expired.sum());
+        stats.put("expiredLastMinute", perMinute.get(0));
+        stats.put("expiredPerMinute", perMinute);
+        return stats;
+    }
+
+    // Remove and return the bookings of every tick up to nowTick
+    private synchronized List<Long> takeDue(long nowTick) {
+        List<Long> due = new ArrayList<>();
+        // After a long pause one full turn already covers every bucket
+        long lastTick = Math.min(nowTick, currentTick + WHEEL_SIZE);
+        for (long tick = currentTick + 1; tick <= lastTick; tick++) {
+            Iterator<Hold> holds = buckets.get(bucketOf(tick)).iterator();
+            while (holds.hasNext()) {
+                Hold hold = holds.next();
+                if (hold.tick() <= nowTick) {
+                    due.add(hold.bookingId());
+                    holds.remove();
+                    scheduled--;
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, nowTick);
+        return due;
+    }
+
+    private void expire(List<Long> bookingIds) {
+        try {
+            Integer cancelled = transaction.execute(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                List<BookingRepository.BookingIntervalView> holds = bookingRepository.lockExpiredHolds(bookingIds, now);
+                if (holds.isEmpty()) {
+                    return 0;
+                }
+                List<Long> ids = holds.stream().map(BookingRepository.BookingIntervalView::getId).toList();
+                bookingRepository.cancelHolds(ids, now);
+                // Make the cars available again, as a manual cancellation does
+                carRepository.markAvailable(holds.stream().map(BookingRepository.BookingIntervalView::getCarId)
+                        .distinct().toList(), now);
+                bookingSlotLedger.releaseAll(ids);
+                for (BookingRepository.BookingIntervalView hold : holds) {
+                    eventPublisher.publishEvent(new BookingChangedEvent(hold.getId(), hold.getCarId(),
+                            hold.getStartDate(), hold.getEndDate(), "CANCELLED"));
+                }
+                return holds.size();
+            });
+            if (cancelled != null && cancelled > 0) {
+                record(cancelled);
+                System.out.println("⌛ Booking holds expired: " + cancelled);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Booking hold expiry failed for " + bookingIds.size() + " bookings, retrying in a minute: "
+                    + e.getMessage());
+            LocalDateTime retryAt = LocalDateTime.now().plusMinutes(1);
+            bookingIds.forEach(bookingId -> schedule(bookingId, retryAt));
+        }
+    }
+
+    // Persist the deadline, since lockExpiredHolds only cancels bookings past their holdExpiresAt
+    private LocalDateTime backfill(BookingRepository.BookingHoldView hold) {
+        LocalDateTime deadline = hold.getCreatedAt().plusMinutes(paymentHoldMinutes);
+        transaction.executeWithoutResult(status -> bookingRepository.backfillHoldExpiry(hold.getId(), deadline));
+        return deadline;
+    }
+
+    private void record(int count) {
+        expired.add(count);
+        long minute = System.currentTimeMillis() / 60_000;
+        int slot = (int) (minute % MINUTES_KEPT);
+        synchronized (expiredByMinute) {
+            if (minuteOfSlot[slot] != minute) {
+                minuteOfSlot[slot] = minute;
+                expiredByMinute[slot] = 0;
+            }
+            expiredByMinute[slot] += count;
+        }
+    }
+
+    private static int bucketOf(long tick) {
+        return (int) (tick & (WHEEL_SIZE - 1));
+    }
+
+    private record Hold(Long bookingId, long tick) {
+    }
+}
@@ -1,27 +1,75 @@
 package com.caronrent.service;
 
 import com.caronrent.dto.BookingRequestDTO;
+import com.caronrent.dto.BookingReserveDTO;
 import com.caronrent.dto.BookingResponseDTO;
 import com.caronrent.dto.CreatePaymentRequest;
+import com.caronrent.dto.FieldSelection;
 import com.caronrent.dto.PaymentResponse;
 import com.caronrent.entity.Booking;
 import com.caronrent.entity.Car;
 import com.caronrent.entity.User;
+import com.caronrent.event.BookingChangedEvent;
+import com.caronrent.event.CarChangedEvent;
 import com.caronrent.repo.BookingRepository;
 import com.caronrent.repo.CarRepository;
+import com.caronrent.repo.ColumnQueries;
 import com.caronrent.repo.UserRepository;
 import com.razorpay.RazorpayException;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
 import jakarta.transaction.Transactional;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class BookingService {
+    // Sparse fieldsets: BookingResponseDTO field -> Booking attribute path
+    private static final Map<String, String> BOOKING_COLUMNS = Map.ofEntries(
+            Map.entry("id", "id"),
+            Map.entry("carId", "car.id"),
+            Map.entry("carBrand", "car.brand"),
+            Map.entry("carModel", "car.model"),
+            Map.entry("userId", "user.id"),
+            Map.entry("userEmail", "user.email"),
+            Map.entry("ownerEmail", "car.owner.email"),
+            Map.entry("startDate", "startDate"),
+            Map.entry("endDate", "endDate"),
+            Map.entry("totalDays", "totalDays"),
+            Map.entry("totalAmount", "totalAmount"),
+            Map.entry("status", "status"),
+            Map.entry("paymentStatus", "paymentStatus"),
+            Map.entry("paymentId", "paymentId"),
+            Map.entry("orderId", "orderId"),
+            Map.entry("amountPaid", "amountPaid"),
+            Map.entry("specialRequests", "specialRequests"),
+            Map.entry("drivingLicenseUrl", "drivingLicenseUrl"),
+            Map.entry("aadharCardUrl", "aadharCardUrl"),
+            Map.entry("policeVerificationUrl", "policeVerificationUrl"),
+            Map.entry("createdAt", "createdAt"),
+            Map.entry("updatedAt", "updatedAt"),
+            Map.entry("confirmedAt", "confirmedAt"),
+            Map.entry("cancelledAt", "cancelledAt"),
+            Map.entry("holdExpiresAt", "holdExpiresAt"));
+    private static final Set<String> ENCRYPTED_ID_FIELDS = Set.of("id", "carId", "userId");
+
     private final BookingRepository bookingRepository;
     private final CarRepository carRepository;
     private final UserRepository userRepository;
@@ -29,11 +77,25 @@ public class BookingService {
     private final IdEncryptionService idEncryptionService;
     private final EmailService emailService;
     private final FileStorageService fileStorageService;
+    private final EntityStreamer entityStreamer;
+    private final ColumnQueries columnQueries;
+    private final BookingSlotLedger bookingSlotLedger;
+    private final CarBookingQueue carBookingQueue;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // How long a reserved booking waits for its documents, and then for payment (expired by BookingHoldWheel)
+    @Value("${app.booking.hold-minutes:15}")
+    private long holdMinutes;
+
+    @Value("${app.booking.payment-hold-minutes:30}")
+    private long paymentHoldMinutes;
 
     public BookingService(BookingRepository bookingRepository, CarRepository carRepository,
                           UserRepository userRepository, PaymentService paymentService,
                           IdEncryptionService idEncryptionService, EmailService emailService,
-                          FileStorageService fileStorageService) {
+                          FileStorageService fileStorageService, EntityStreamer entityStreamer,
+                          ColumnQueries columnQueries, BookingSlotLedger bookingSlotLedger,
+                          CarBookingQueue carBookingQueue, ApplicationEventPublisher eventPublisher) {
         this.bookingRepository = bookingRepository;
         this.carRepository = carRepository;
         this.userRepository = userRepository;
@@ -41,78 +103,146 @@ public class BookingService {
         this.idEncryptionService = idEncryptionService;
         this.emailService = emailService;
         this.fileStorageService = fileStorageService;
+        this.entityStreamer = entityStreamer;
+        this.columnQueries = columnQueries;
+        this.bookingSlotLedger = bookingSlotLedger;
+        this.carBookingQueue = carBookingQueue;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
     public BookingResponseDTO createBooking(String userEmail, BookingRequestDTO bookingRequest) {
-        Long carId = idEncryptionService.decryptId(bookingRequest.getCarId());
+        // Validate document uploads
+        validateDocuments(bookingRequest.getDrivingLicense(), bookingRequest.getAadharCard(),
+                bookingRequest.getPoliceVerification());
+
+        Booking booking = holdBooking(userEmail, bookingRequest.getCarId(), bookingRequest.getStartDate(),
+                bookingRequest.getEndDate(), bookingRequest.getSpecialRequests());
+        return storeDocuments(booking, bookingRequest.getDrivingLicense(), bookingRequest.getAadharCard(),
+                bookingRequest.getPoliceVerification());
+    }
+
+    /**
+     * Two-phase booking, step 1: validate and hold the car without any uploads.
+     * The booking waits in DOCUMENTS_PENDING until documents arrive or the hold expires.
+     */
+    @Transactional
+    public BookingResponseDTO reserveBooking(String userEmail, BookingReserveDTO reserveRequest) {
+        Booking booking = holdBooking(userEmail, reserveRequest.getCarId(), reserveRequest.getStartDate(),
+                reserveRequest.getEndDate(), reserveRequest.getSpecialRequests());
+        return convertToResponseDTO(booking);
+    }
+
+    /**
+     * Two-phase booking, step 2: attach the documents to a held booking, which then
+     * waits for payment as usual
+     */
+    @Transactional
+    public BookingResponseDTO attachDocuments(String encryptedBookingId, String userEmail, MultipartFile drivingLicense,
+                                              MultipartFile aadharCard, MultipartFile policeVerification) {
+        validateDocuments(drivingLicense, aadharCard, policeVerification);
+
+        Long bookingId = idEncryptionService.decryptId(encryptedBookingId);
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found"));
+
+        if (!booking.getUser().getEmail().equals(userEmail)) {
+            throw new RuntimeException("You can only add documents to your own bookings");
+        }
+        if (!"DOCUMENTS_PENDING".equals(booking.getStatus())) {
+            throw new RuntimeException("Booking is not waiting for documents");
+        }
+        if (LocalDateTime.now().isAfter(booking.getHoldExpiresAt())) {
+            throw new RuntimeException("Booking hold has expired. Please reserve the car again.");
+        }
+
+        return storeDocuments(booking, drivingLicense, aadharCard, policeVerification);
+    }
+
+    /**
+     * Validate the request and hold the car's slots; the booking is saved in DOCUMENTS_PENDING
+     */
+    private Booking holdBooking(String userEmail, String encryptedCarId, LocalDateTime startDate,
+                                LocalDateTime endDate, String specialRequests) {
+        Long carId = idEncryptionService.decryptId(encryptedCarId);
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         Car car = carRepository.findById(carId)
                 .orElseThrow(() -> new RuntimeException("Car not found"));
 
-        // Validate document uploads
-        validateDocuments(bookingRequest);
+        // Validate dates
+        validateBookingDates(startDate, endDate);
 
-        // Store document files
-        String drivingLicenseUrl = fileStorageService.storeDocument(bookingRequest.getDrivingLicense(), "dl");
-        String aadharCardUrl = fileStorageService.storeDocument(bookingRequest.getAadharCard(), "aadhar");
-        String policeVerificationUrl = fileStorageService.storeDocument(bookingRequest.getPoliceVerification(), "police");
+        // Check if car is available
+        if (!car.getIsAvailable() || !car.getIsActive()) {
+            throw new RuntimeException("Car is not available for booking");
+        }
 
-        try {
-            // Validate dates
-            validateBookingDates(bookingRequest.getStartDate(), bookingRequest.getEndDate());
+        // Queue behind other requests for this car; losers fail here, before any upload
+        carBookingQueue.claim(carId, startDate, endDate);
 
-            // Check if car is available
-            if (!car.getIsAvailable() || !car.getIsActive()) {
-                throw new RuntimeException("Car is not available for booking");
-            }
+        // Calculate total days and amount
+        long days = calculateDaysBetween(startDate, endDate);
+        double totalAmount = days * car.getDailyRate();
 
-            // Check overlapping bookings
-            List<Booking> overlappingBookings = bookingRepository.findOverlappingBookings(
-                    carId,
-                    bookingRequest.getStartDate(),
-                    bookingRequest.getEndDate()
-            );
+        // Create booking
+        Booking booking = new Booking();
+        booking.setCar(car);
+        booking.setUser(user);
+        booking.setStartDate(startDate);
+        booking.setEndDate(endDate);
+        booking.setTotalDays((int) days);
+        booking.setTotalAmount(totalAmount);
+        booking.setSpecialRequests(specialRequests);
 
-            if (!overlappingBookings.isEmpty()) {
-                throw new RuntimeException("Car is already booked for the selected dates");
-            }
+        booking.setStatus("DOCUMENTS_PENDING");
+        booking.setHoldExpiresAt(LocalDateTime.now().plusMinutes(holdMinutes));
+        booking.setPaymentStatus("PENDING");
+        booking.setAmountPaid(0.0);
+
+        Booking savedBooking = bookingRepository.save(booking);
+
+        // Hold the car's slots; an overlapping booking (even a concurrent one) fails here and rolls back
+        bookingSlotLedger.reserve(savedBooking.getId(), carId, startDate, endDate);
+
+        // Temporarily mark car as unavailable
+        car.setIsAvailable(false);
+        car.setBookingCount(car.getBookingCount() + 1);
+        carRepository.save(car);
 
-            // Calculate total days and amount
-            long days = calculateDaysBetween(bookingRequest.getStartDate(), bookingRequest.getEndDate());
-            double totalAmount = days * car.getDailyRate();
+        eventPublisher.publishEvent(new BookingChangedEvent(savedBooking));
+        eventPublisher.publishEvent(new CarChangedEvent(car, false));
 
-            // Create booking
-            Booking booking = new Booking();
-            booking.setCar(car);
-            booking.setUser(user);
-            booking.setStartDate(bookingRequest.getStartDate());
-            booking.setEndDate(bookingRequest.getEndDate());
-            booking.setTotalDays((int) days);
-            booking.setTotalAmount(totalAmount);
-            booking.setSpecialRequests(bookingRequest.getSpecialRequests());
+        // Log booking details for debugging
+        logBookingDetails(savedBooking, car, userEmail, days, totalAmount);
+
+        return savedBooking;
+    }
+
+    /**
+     * Store the documents of a held booking and move it to PAYMENT_PENDING
+     */
+    private BookingResponseDTO storeDocuments(Booking booking, MultipartFile drivingLicense,
+                                              MultipartFile aadharCard, MultipartFile policeVerification) {
+        // Store document files
+        String drivingLicenseUrl = fileStorageService.storeDocument(drivingLicense, "dl");
+        String aadharCardUrl = fileStorageService.storeDocument(aadharCard, "aadhar");
+        String policeVerificationUrl = fileStorageService.storeDocument(policeVerification, "police");
 
+        try {
             booking.setDrivingLicenseUrl(drivingLicenseUrl);
             booking.setAadharCardUrl(aadharCardUrl);
             booking.setPoliceVerificationUrl(policeVerificationUrl);
 
             booking.setStatus("PAYMENT_PENDING");
-            booking.setPaymentStatus("PENDING");
-            booking.setAmountPaid(0.0);
-
-            // Temporarily mark car as unavailable
-            car.setIsAvailable(false);
-            carRepository.save(car);
+            booking.setHoldExpiresAt(LocalDateTime.now().plusMinutes(paymentHoldMinutes));
 
             Booking savedBooking = bookingRepository.save(booking);
-
-            // Log booking details for debugging
-            logBookingDetails(savedBooking, car, userEmail, days, totalAmount);
+            eventPublisher.publishEvent(new BookingChangedEvent(savedBooking));
 
             // Send emails
-            sendBookingCreationEmails(savedBooking, car, userEmail);
+            sendBookingCreationEmails(savedBooking, savedBooking.getCar(), savedBooking.getUser().getEmail());
 
             return convertToResponseDTO(savedBooking);
 
@@ -126,27 +256,28 @@ public class BookingService {
     /**
      * Validate document uploads
      */
-    private void validateDocuments(BookingRequestDTO bookingRequest) {
-        if (bookingRequest.getDrivingLicense() == null || bookingRequest.getDrivingLicense().isEmpty()) {
+    private void validateDocuments(MultipartFile drivingLicense, MultipartFile aadharCard,
+                                   MultipartFile policeVerification) {
+        if (drivingLicense == null || drivingLicense.isEmpty()) {
             throw new RuntimeException("Driving license is required");
         }
-        if (bookingRequest.getAadharCard() == null || bookingRequest.getAadharCard().isEmpty()) {
+        if (aadharCard == null || aadharCard.isEmpty()) {
             throw new RuntimeException("Aadhar card is required");
         }
-        if (bookingRequest.getPoliceVerification() == null || bookingRequest.getPoliceVerification().isEmpty()) {
+        if (policeVerification == null || policeVerification.isEmpty()) {
             throw new RuntimeException("Police verification document is required");
         }
 
         // Validate file types
-        validateFileType(bookingRequest.getDrivingLicense(), "Driving license");
-        validateFileType(bookingRequest.getAadharCard(), "Aadhar card");
-        validateFileType(bookingRequest.getPoliceVerification(), "Police verification");
+        validateFileType(drivingLicense, "Driving license");
+        validateFileType(aadharCard, "Aadhar card");
+        validateFileType(policeVerification, "Police verification");
     }
 
     /**
      * Validate file type
      */
-    private void validateFileType(org.springframework.web.multipart.MultipartFile file, String documentType) {
+    private void validateFileType(MultipartFile file, String documentType) {
         String contentType = file.getContentType();
         if (contentType == null || (!contentType.startsWith("image/") && !contentType.equals("application/pdf"))) {
             throw new RuntimeException(documentType + " must be an image or PDF file");
@@ -196,8 +327,9 @@ public class BookingService {
     /**
      * Calculate days between two dates
      * Returns number of full days, rounding up partial days
+     * (also used by the flexible-dates search so quoted prices match bookings)
      */
-    private long calculateDaysBetween(LocalDateTime startDate, LocalDateTime endDate) {
+    static long calculateDaysBetween(LocalDateTime startDate, LocalDateTime endDate) {
         // If times are on the same day but different times
         if (startDate.toLocalDate().equals(endDate.toLocalDate())) {
             long hours = ChronoUnit.HOURS.between(startDate, endDate);
@@ -309,25 +441,39 @@ public class BookingService {
     /**
      * Get user bookings
      */
-    public List<BookingResponseDTO> getUserBookings(String userEmail) {
+    public List<BookingResponseDTO> getUserBookings(String userEmail, FieldSelection fields) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        if (!fields.isAll()) {
+            return findBookingColumns((root, query, cb) -> cb.equal(root.get("user"), user), fields);
+        }
         return bookingRepository.findByUser(user).stream()
                 .map(this::convertToResponseDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Streams the user's bookings to the sink one at a time (NDJSON mode)
+     */
+    @Transactional
+    public void streamUserBookings(String userEmail, Consumer<? super BookingResponseDTO> sink) {
+        entityStreamer.forEach(bookingRepository.streamByUserEmail(userEmail),
+                booking -> sink.accept(convertToResponseDTO(booking)));
+    }
+
     /**
      * Get owner bookings
      */
-    public List<BookingResponseDTO> getOwnerBookings(String ownerEmail) {
+    public List<BookingResponseDTO> getOwnerBookings(String ownerEmail, FieldSelection fields) {
         User owner = userRepository.findByEmail(ownerEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        List<BookingResponseDTO> bookings = bookingRepository.findByCarOwner(owner).stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+        List<BookingResponseDTO> bookings = fields.isAll()
+                ? bookingRepository.findByCarOwner(owner).stream()
+                        .map(this::convertToResponseDTO)
+                        .collect(Collectors.toList())
+                : findBookingColumns((root, query, cb) -> cb.equal(root.get("car").get("owner"), owner), fields);
 
         System.out.println("👑 Owner bookings for: " + ownerEmail);
         bookings.forEach(b -> {
@@ -340,6 +486,15 @@ public class BookingService {
         return bookings;
     }
 
+    /**
+     * Streams bookings of the owner's cars to the sink one at a time (NDJSON mode)
+     */
+    @Transactional
+    public void streamOwnerBookings(String ownerEmail, Consumer<? super BookingResponseDTO> sink) {
+        entityStreamer.forEach(bookingRepository.streamByCarOwnerEmail(ownerEmail),
+                booking -> sink.accept(convertToResponseDTO(booking)));
+    }
+
     /**
      * Confirm booking
      */
@@ -371,6 +526,7 @@ public class BookingService {
         booking.getCar().setIsAvailable(false);
 
         Booking updatedBooking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(new BookingChangedEvent(updatedBooking));
 
         System.out.println("✅ Booking confirmed: " + bookingId);
         System.out.println("   Payment: " + booking.getPaymentStatus());
@@ -426,7 +582,7 @@ public class BookingService {
         String reason = "Booking cancelled by user";
 
         // Different handling based on status
-        if ("PAYMENT_PENDING".equals(booking.getStatus())) {
+        if ("DOCUMENTS_PENDING".equals(booking.getStatus()) || "PAYMENT_PENDING".equals(booking.getStatus())) {
             // If payment not made yet, just cancel
             booking.setStatus("CANCELLED");
             booking.setPaymentStatus("CANCELLED");
@@ -434,6 +590,7 @@ public class BookingService {
 
             // Make car available again
             booking.getCar().setIsAvailable(true);
+            bookingSlotLedger.release(bookingId);
 
             System.out.println("❌ Booking cancelled (payment pending): " + bookingId);
 
@@ -448,6 +605,7 @@ public class BookingService {
 
             // Make car available again
             booking.getCar().setIsAvailable(true);
+            bookingSlotLedger.release(bookingId);
 
             // Initiate refund if paid
             if ("PAID".equals(booking.getPaymentStatus())) {
@@ -463,6 +621,7 @@ public class BookingService {
         }
 
         Booking updatedBooking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(new BookingChangedEvent(updatedBooking));
         sendCancellationEmails(updatedBooking, "user", reason);
 
         return convertToResponseDTO(updatedBooking);
@@ -499,6 +658,7 @@ public class BookingService {
 
         // Make car available again
         booking.getCar().setIsAvailable(true);
+        bookingSlotLedger.release(bookingId);
 
         // Initiate refund if paid
         if ("PAID".equals(booking.getPaymentStatus())) {
@@ -514,6 +674,7 @@ public class BookingService {
         }
 
         Booking updatedBooking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(new BookingChangedEvent(updatedBooking));
         sendCancellationEmails(updatedBooking, "owner", reason);
 
         return convertToResponseDTO(updatedBooking);
@@ -567,19 +728,23 @@ public class BookingService {
         // Update booking status based on payment
         if ("PAID".equals(status)) {
             booking.setStatus("PAYMENT_CONFIRMED");
+            booking.setHoldExpiresAt(null);
             booking.setAmountPaid(booking.getTotalAmount());
             sendPaymentSuccessEmails(booking);
         } else if ("FAILED".equals(status)) {
             booking.setStatus("CANCELLED");
             booking.getCar().setIsAvailable(true);
+            bookingSlotLedger.release(bookingId);
             sendCancellationEmails(booking, "system", "Payment failed");
         } else if ("REFUNDED".equals(status)) {
             booking.setStatus("CANCELLED");
             booking.getCar().setIsAvailable(true);
+            bookingSlotLedger.release(bookingId);
             sendCancellationEmails(booking, "system", "Payment refunded");
         }
 
         Booking updatedBooking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(new BookingChangedEvent(updatedBooking));
         return convertToResponseDTO(updatedBooking);
     }
 
@@ -645,6 +810,33 @@ public class BookingService {
         return paymentService.createPaymentOrder(request);
     }
 
+    /**
+     * Sparse-fieldset read: selects only the requested columns, joining car/user/owner
+     * only when one of their fields was asked for
+     */
+    private List<BookingResponseDTO> findBookingColumns(Specification<Booking> spec, FieldSelection fields) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (String field : fields.getFields()) {
+            columns.put(field, BOOKING_COLUMNS.get(field));
+        }
+        List<Tuple> rows = columnQueries.select(Booking.class, spec, columns, Sort.by("id"), Integer.MAX_VALUE);
+
+        List<BookingResponseDTO> bookings = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            BookingResponseDTO dto = new BookingResponseDTO();
+            BeanWrapper wrapper = new BeanWrapperImpl(dto);
+            for (TupleElement<?> column : row.getElements()) {
+                Object value = row.get(column);
+                if (ENCRYPTED_ID_FIELDS.contains(column.getAlias())) {
+                    value = idEncryptionService.encryptId((Long) value);
+                }
+                wrapper.setPropertyValue(column.getAlias(), value);
+            }
+            bookings.add(dto);
+        }
+        return bookings;
+    }
+
     /**
      * Convert Booking entity to Response DTO
      */
@@ -674,6 +866,7 @@ public class BookingService {
         dto.setUpdatedAt(booking.getUpdatedAt());
         dto.setConfirmedAt(booking.getConfirmedAt());
         dto.setCancelledAt(booking.getCancelledAt());
+        dto.setHoldExpiresAt(booking.getHoldExpiresAt());
         return dto;
     }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.caronrent.service;
+
+import com.caronrent.repo.BookingRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reservation ledger: every active booking holds the (car, hour slot) rows it covers
+ * in booking_slots, whose primary key rejects a second holder.
+ *
+ * A booking's slots go in with one multi-row INSERT inside the booking transaction, so
+ * two concurrent bookings of the same car cannot both commit and no table or
+ * serializable lock is needed; bookings of different cars never touch the same rows.
+ * Slots cover [startDate, endDate): a booking ending at 10:00 does not hold the 10:00 slot.
+ * Hours the booking only partly covers (the first and last, unless on the hour) are
+ * marked partial. A second booking touching a partial slot locks the row and checks
+ * the exact times against the other active bookings instead, so one ending at 10:30
+ * and one starting at 10:45 can share the 10:00 slot. Releasing a shared slot hands
+ * it to a remaining booking.
+ */
+@Service
+public class BookingSlotLedger implements CommandLineRunner {
+    private static final long SLOT_SECONDS = 3600;
+    private static final String INSERT_SQL = "INSERT INTO booking_slots (car_id, slot, booking_id, partial) VALUES ";
+    private static final String LOCK_SLOT_SQL = "SELECT partial FROM booking_slots WHERE car_id = ? AND slot = ? FOR UPDATE";
+    // Locking read, so it sees bookings committed while this transaction waited for the slot row
+    private static final String OVERLAP_SQL = "SELECT b.id FROM bookings b WHERE b.car_id = ? AND b.id <> ? " +
+            "AND b.status NOT IN ('CANCELLED', 'COMPLETED') AND b.start_date < ? AND b.end_date > ? FOR UPDATE";
+    private static final String HAND_OVER_SQL = "UPDATE booking_slots SET booking_id = ? WHERE car_id = ? AND slot = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookingRepository bookingRepository;
+
+    public BookingSlotLedger(JdbcTemplate jdbcTemplate, BookingRepository bookingRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookingRepository = bookingRepository;
+    }
+
+    /**
+     * Fill an empty ledger from the active bookings (e.g. after upgrading an existing database)
+     */
+    @Override
+    public void run(String... args) {
+        Long held = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM booking_slots", Long.class);
+        if (held != null && held > 0) {
+            return;
+        }
+        int reserved = 0;
+        for (var booking : bookingRepository.findActiveBookingIntervals()) {
+            try {
+                reserve(booking.getId(), booking.getCarId(), booking.getStartDate(), booking.getEndDate());
+                reserved++;
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Booking " + booking.getId() + " not added to slot ledger: " + e.getMessage());
+            }
+        }
+        if (reserved > 0) {
+            System.out.println("✅ Slot ledger filled from " + reserved + " active bookings");
+        }
+    }
+
+    /**
+     * Hold the car's slots for the booking; must run in the booking's transaction so a
+     * rejected booking rolls back with it
+     */
+    public void reserve(Long bookingId, Long carId, LocalDateTime startDate, LocalDateTime endDate) {
+        long startSecond = startDate.toEpochSecond(ZoneOffset.UTC);
+        long endSecond = endDate.toEpochSecond(ZoneOffset.UTC);
+        long fromSlot = Math.floorDiv(startSecond, SLOT_SECONDS);
+        long toSlot = Math.floorDiv(endSecond - 1, SLOT_SECONDS);
+
+        StringBuilder sql = new StringBuilder(INSERT_SQL);
+        List<Object> args = new ArrayList<>();
+        List<Long> partialSlots = new ArrayList<>();
+        for (long slot = fromSlot; slot <= toSlot; slot++) {
+            if (startSecond > slot * SLOT_SECONDS || endSecond < (slot + 1) * SLOT_SECONDS) {
+                partialSlots.add(slot);
+                continue;
+            }
+            sql.append(args.isEmpty() ? "(?, ?, ?, false)" : ", (?, ?, ?, false)");
+            args.add(carId);
+            args.add(slot);
+            args.add(bookingId);
+        }
+        try {
+            if (!args.isEmpty()) {
+                jdbcTemplate.update(sql.toString(), args.toArray());
+            }
+            for (Long slot : partialSlots) {
+                reservePartial(bookingId, carId, slot, startDate, endDate);
+            }
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("Car is already booked for the selected dates");
+        }
+    }
+
+    // Take a partly covered hour, or share it if its holder's booking does not overlap this one
+    private void reservePartial(Long bookingId, Long carId, long slot, LocalDateTime startDate, LocalDateTime endDate) {
+        while (true) {
+            try {
+                jdbcTemplate.update(INSERT_SQL + "(?, ?, ?, true)", carId, slot, bookingId);
+                return;
+            } catch (DuplicateKeyException e) {
+                List<Boolean> holder = jdbcTemplate.queryForList(LOCK_SLOT_SQL, Boolean.class, carId, slot);
+                if (holder.isEmpty()) {
+                    continue; // released in the meantime
+                }
+                if (!holder.get(0) || !jdbcTemplate.queryForList(OVERLAP_SQL, Long.class, carId, bookingId,
+                        Timestamp.valueOf(endDate), Timestamp.valueOf(startDate)).isEmpty()) {
+                    throw e;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Free the booking's slots (cancel, refund, complete); a no-op if it holds none
+     */
+    public void release(Long bookingId) {
+        releaseAll(List.of(bookingId));
+    }
+
+    /**
+     * Free the slots of many bookings; partial slots still shared with another active
+     * booking pass to that booking
+     */
+    public void releaseAll(Collection<Long> bookingIds) {
+        if (bookingIds.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(bookingIds.size(), "?"));
+        List<Map<String, Object>> partialSlots = jdbcTemplate.queryForList("SELECT car_id, slot FROM booking_slots " +
+                "WHERE booking_id IN (" + placeholders + ") AND partial = true FOR UPDATE", bookingIds.toArray());
+        for (Map<String, Object> row : partialSlots) {
+            long carId = ((Number) row.get("car_id")).longValue();
+            long slot = ((Number) row.get("slot")).longValue();
+            List<Object> args = new ArrayList<>(List.of(carId));
+            args.addAll(bookingIds);
+            args.add(Timestamp.valueOf(slotStart(slot + 1)));
+            args.add(Timestamp.valueOf(slotStart(slot)));
+            List<Long> sharers = jdbcTemplate.queryForList("SELECT b.id FROM bookings b WHERE b.car_id = ? " +
+                    "AND b.id NOT IN (" + placeholders + ") AND b.status NOT IN ('CANCELLED', 'COMPLETED') " +
+                    "AND b.start_date < ? AND b.end_date > ?", Long.class, args.toArray());
+            if (!sharers.isEmpty()) {
+                jdbcTemplate.update(HAND_OVER_SQL, sharers.get(0), carId, slot);
+            }
+        }
+        jdbcTemplate.update("DELETE FROM booking_slots WHERE booking_id IN (" + placeholders + ")", bookingIds.toArray());
+    }
+
+    private static LocalDateTime slotStart(long slot) {
+        return LocalDateTime.ofEpochSecond(slot * SLOT_SECONDS, 0, ZoneOffset.UTC);
+    }
+}
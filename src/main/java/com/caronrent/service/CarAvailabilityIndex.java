@@ -0,0 +1,241 @@
+package com.caronrent.service;
+
+import com.caronrent.event.BookingChangedEvent;
+import com.caronrent.repo.BookingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of active (non CANCELLED/COMPLETED) booking intervals per car.
+ * Loaded once at startup and kept up to date from BookingChangedEvent, so date
+ * searches never have to page in the bookings table.
+ *
+ * Each car also keeps an hourly occupancy bitmap over a rolling horizon. A window
+ * whose hour slots are all clear is free without looking at the intervals, so the
+ * common case is a few word-level AND operations.
+ */
+@Component
+public class CarAvailabilityIndex implements CommandLineRunner {
+
+    private final BookingRepository bookingRepository;
+    private final Map<Long, CarIntervals> intervalsByCar = new ConcurrentHashMap<>();
+    private final Map<Long, Long> carIdByBookingId = new ConcurrentHashMap<>();
+
+    @Value("${app.availability.bitmap-horizon-days:120}")
+    private int horizonDays;
+
+    // Epoch hour of bitmap slot 0; moved forward every night
+    private volatile long baseHour;
+
+    public CarAvailabilityIndex(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        rollHorizon();
+        int loaded = 0;
+        for (BookingRepository.BookingIntervalView row : bookingRepository.findActiveBookingIntervals()) {
+            put(row.getId(), row.getCarId(), row.getStartDate(), row.getEndDate());
+            loaded++;
+        }
+        System.out.println("✅ Availability index loaded: " + loaded + " active bookings across "
+                + intervalsByCar.size() + " cars");
+    }
+
+    /**
+     * Start the bitmap horizon at today's midnight. Bitmaps built for the previous
+     * base are rebuilt lazily from the intervals on their next lookup.
+     */
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rollHorizon() {
+        baseHour = toEpochHour(LocalDateTime.now().toLocalDate().atStartOfDay());
+    }
+
+    /**
+     * Apply booking changes only once they are committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        if (event.isActive()) {
+            put(event.getBookingId(), event.getCarId(), event.getStartDate(), event.getEndDate());
+        } else {
+            remove(event.getBookingId());
+        }
+    }
+
+    /**
+     * True if no active booking of the car overlaps [startDate, endDate].
+     * Uses the same inclusive semantics as Booking.overlapsWith.
+     */
+    public boolean isAvailable(Long carId, LocalDateTime startDate, LocalDateTime endDate) {
+        CarIntervals intervals = intervalsByCar.get(carId);
+        return intervals == null || !intervals.overlaps(startDate, endDate, baseHour, horizonSlots());
+    }
+
+    /**
+     * Active booking intervals of a car that overlap [from, to], sorted by start date
+     */
+    public List<BookedInterval> getBookedIntervals(Long carId, LocalDateTime from, LocalDateTime to) {
+        CarIntervals intervals = intervalsByCar.get(carId);
+        return intervals == null ? List.of() : intervals.between(from, to);
+    }
+
+    /**
+     * Evaluate the whole fleet for one window: ids of cars with an overlapping booking.
+     * Cars that were never booked are not in the index and therefore always free.
+     */
+    public Set<Long> findOccupiedCarIds(LocalDateTime startDate, LocalDateTime endDate) {
+        long base = baseHour;
+        int slots = horizonSlots();
+        Set<Long> occupied = new HashSet<>();
+        intervalsByCar.forEach((carId, intervals) -> {
+            if (intervals.overlaps(startDate, endDate, base, slots)) {
+                occupied.add(carId);
+            }
+        });
+        return occupied;
+    }
+
+    private int horizonSlots() {
+        return horizonDays * 24;
+    }
+
+    private static long toEpochHour(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 3600);
+    }
+
+    private void put(Long bookingId, Long carId, LocalDateTime startDate, LocalDateTime endDate) {
+        Long previousCarId = carIdByBookingId.put(bookingId, carId);
+        if (previousCarId != null && !previousCarId.equals(carId)) {
+            CarIntervals previous = intervalsByCar.get(previousCarId);
+            if (previous != null) {
+                previous.remove(bookingId);
+            }
+        }
+        intervalsByCar.computeIfAbsent(carId, id -> new CarIntervals())
+                .put(new Interval(bookingId, startDate, endDate));
+    }
+
+    private void remove(Long bookingId) {
+        Long carId = carIdByBookingId.remove(bookingId);
+        if (carId != null) {
+            CarIntervals intervals = intervalsByCar.get(carId);
+            if (intervals != null) {
+                intervals.remove(bookingId);
+            }
+        }
+    }
+
+    public record BookedInterval(LocalDateTime start, LocalDateTime end) {
+    }
+
+    private record Interval(Long bookingId, LocalDateTime start, LocalDateTime end) {
+    }
+
+    /**
+     * Intervals of one car sorted by start date. Because we also track the longest
+     * interval ever stored, an overlap query only needs to look at intervals starting
+     * in [queryStart - longest, queryEnd], which is a log(n) seek plus a short scan.
+     *
+     * The bitmap marks every hour slot touched by an interval. Hours are coarser than
+     * the intervals, so a clear window is definitely free while a set bit only means
+     * "check the intervals". It is rebuilt lazily after any change or horizon move.
+     */
+    private static class CarIntervals {
+        private static final Comparator<Interval> BY_START = Comparator
+                .comparing(Interval::start)
+                .thenComparing(Interval::bookingId);
+
+        private final NavigableSet<Interval> byStart = new TreeSet<>(BY_START);
+        private final Map<Long, Interval> byBookingId = new HashMap<>();
+        private Duration longest = Duration.ZERO;
+        private long[] bitmap;
+        private long bitmapBaseHour = Long.MIN_VALUE;
+
+        synchronized void put(Interval interval) {
+            Interval previous = byBookingId.put(interval.bookingId(), interval);
+            if (previous != null) {
+                byStart.remove(previous);
+            }
+            byStart.add(interval);
+            Duration length = Duration.between(interval.start(), interval.end());
+            if (length.compareTo(longest) > 0) {
+                longest = length;
+            }
+            bitmap = null;
+        }
+
+        synchronized void remove(Long bookingId) {
+            Interval previous = byBookingId.remove(bookingId);
+            if (previous != null) {
+                byStart.remove(previous);
+                bitmap = null;
+            }
+        }
+
+        synchronized boolean overlaps(LocalDateTime startDate, LocalDateTime endDate, long baseHour, int slots) {
+            long fromSlot = toEpochHour(startDate) - baseHour;
+            long toSlot = toEpochHour(endDate) - baseHour;
+            if (fromSlot >= 0 && toSlot < slots && fromSlot <= toSlot) {
+                if (!OccupancyBitmap.anySet(bitmap(baseHour, slots), (int) fromSlot, (int) toSlot)) {
+                    return false;
+                }
+            }
+
+            Interval from = new Interval(Long.MIN_VALUE, startDate.minus(longest), null);
+            Interval to = new Interval(Long.MAX_VALUE, endDate, null);
+            for (Interval interval : byStart.subSet(from, true, to, true)) {
+                if (!interval.end().isBefore(startDate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized List<BookedInterval> between(LocalDateTime from, LocalDateTime to) {
+            List<BookedInterval> result = new ArrayList<>();
+            Interval lower = new Interval(Long.MIN_VALUE, from.minus(longest), null);
+            Interval upper = new Interval(Long.MAX_VALUE, to, null);
+            for (Interval interval : byStart.subSet(lower, true, upper, true)) {
+                if (!interval.end().isBefore(from)) {
+                    result.add(new BookedInterval(interval.start(), interval.end()));
+                }
+            }
+            return result;
+        }
+
+        private long[] bitmap(long baseHour, int slots) {
+            if (bitmap == null || bitmapBaseHour != baseHour) {
+                long[] words = OccupancyBitmap.create(slots);
+                for (Interval interval : byStart) {
+                    long from = Math.max(toEpochHour(interval.start()) - baseHour, 0);
+                    long to = Math.min(toEpochHour(interval.end()) - baseHour, slots - 1);
+                    if (from <= to) {
+                        OccupancyBitmap.set(words, (int) from, (int) to);
+                    }
+                }
+                bitmap = words;
+                bitmapBaseHour = baseHour;
+            }
+            return bitmap;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.caronrent.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-car single-writer queue in front of the booking reservation step.
+ *
+ * A booking request claims its car and window here before uploading documents or
+ * writing anything. Each car has its own mailbox, drained by one virtual thread at a
+ * time, so contenders for the same car are decided one after another in memory: a
+ * window overlapping a committed booking or a claim still in flight is refused at
+ * once. Every drain takes everything queued so far and decides it in one pass.
+ * Different cars have separate mailboxes and never wait on each other.
+ *
+ * The slot ledger stays the authority; this only keeps requests that cannot win away
+ * from the file store and the database.
+ */
+@Component
+public class CarBookingQueue {
+
+    private final CarAvailabilityIndex carAvailabilityIndex;
+    private final ExecutorService drainExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // One lane per car that has been booked since startup (bounded by the fleet size)
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    public CarBookingQueue(CarAvailabilityIndex carAvailabilityIndex) {
+        this.carAvailabilityIndex = carAvailabilityIndex;
+    }
+
+    /**
+     * Claim [startDate, endDate] on the car for the current transaction, or fail if it is
+     * already booked or claimed. The claim is released when the transaction completes,
+     * after the availability index has seen a committed booking.
+     */
+    public void claim(Long carId, LocalDateTime startDate, LocalDateTime endDate) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Booking claims must be made inside a transaction");
+        }
+        Lane lane = lanes.computeIfAbsent(carId, id -> new Lane());
+        Claim claim = new Claim(carId, startDate, endDate);
+        lane.post(claim);
+        if (!claim.granted.join()) {
+            throw new RuntimeException("Car is already booked for the selected dates");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lane.post(new Release(claim));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainExecutor.shutdown();
+    }
+
+    private boolean conflicts(Claim claim, List<Claim> held) {
+        for (Claim other : held) {
+            if (!claim.endDate.isBefore(other.startDate) && !claim.startDate.isAfter(other.endDate)) {
+                return true;
+            }
+        }
+        return !carAvailabilityIndex.isAvailable(claim.carId, claim.startDate, claim.endDate);
+    }
+
+    private sealed interface Message permits Claim, Release {
+    }
+
+    private static final class Claim implements Message {
+        final Long carId;
+        final LocalDateTime startDate;
+        final LocalDateTime endDate;
+        final CompletableFuture<Boolean> granted = new CompletableFuture<>();
+
+        Claim(Long carId, LocalDateTime startDate, LocalDateTime endDate) {
+            this.carId = carId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+    }
+
+    private record Release(Claim claim) implements Message {
+    }
+
+    private final class Lane {
+        private final Queue<Message> mailbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Granted claims whose transactions are still running; only touched while draining
+        private final List<Claim> held = new ArrayList<>();
+
+        void post(Message message) {
+            mailbox.add(message);
+            if (draining.compareAndSet(false, true)) {
+                drainExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                decide();
+                draining.set(false);
+                // A message posted after the last poll but before the flag was cleared needs another pass
+            } while (!mailbox.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        // Releases in the batch go first, then claims are decided in arrival order
+        private void decide() {
+            List<Claim> claims = new ArrayList<>();
+            Message message;
+            while ((message = mailbox.poll()) != null) {
+                if (message instanceof Release release) {
+                    held.remove(release.claim());
+                } else {
+                    claims.add((Claim) message);
+                }
+            }
+            for (Claim claim : claims) {
+                try {
+                    boolean granted = !conflicts(claim, held);
+                    if (granted) {
+                        held.add(claim);
+                    }
+                    claim.granted.complete(granted);
+                } catch (RuntimeException e) {
+                    claim.granted.completeExceptionally(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.caronrent.service;
+
+import com.caronrent.event.CarChangedEvent;
+import com.caronrent.repo.CarRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Uniform lat/lon grid over active cars that have coordinates.
+ * Nearest-neighbour queries scan the cells under a growing bounding box
+ * until enough cars fall inside the search circle.
+ */
+@Component
+public class CarGeoIndex implements CommandLineRunner {
+
+    // ~11 km at the equator; narrower in longitude towards the poles
+    private static final double CELL_DEGREES = 0.1;
+    private static final int LAT_CELLS = (int) Math.round(180 / CELL_DEGREES);
+    private static final int LON_CELLS = (int) Math.round(360 / CELL_DEGREES);
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    private static final double INITIAL_SEARCH_KM = 5;
+
+    private final CarRepository carRepository;
+    private final Map<Integer, Set<Long>> cells = new HashMap<>();
+    private final Map<Long, Point> points = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public CarGeoIndex(CarRepository carRepository) {
+        this.carRepository = carRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        List<CarRepository.CarListingView> cars = carRepository.findAllListingViews();
+        for (CarRepository.CarListingView car : cars) {
+            put(car.getId(), car.getIsActive(), car.getLatitude(), car.getLongitude());
+        }
+        System.out.println("✅ Geo index loaded: " + points.size() + " cars with coordinates");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        if (event.isDeleted()) {
+            put(event.getCarId(), false, null, null);
+        } else {
+            put(event.getCarId(), event.getIsActive(), event.getLatitude(), event.getLongitude());
+        }
+    }
+
+    public record Neighbor(Long carId, double distanceKm) {
+    }
+
+    /**
+     * Up to limit cars within radiusKm accepted by the filter, nearest first
+     */
+    public List<Neighbor> findNearest(double latitude, double longitude, double radiusKm,
+                                      int limit, LongPredicate filter) {
+        double searchKm = Math.min(radiusKm, INITIAL_SEARCH_KM);
+        lock.readLock().lock();
+        try {
+            while (true) {
+                List<Neighbor> found = collectWithin(latitude, longitude, searchKm, filter);
+                // Everything within searchKm was seen, so the nearest `limit` are final
+                if (found.size() >= limit || searchKm >= radiusKm) {
+                    found.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+                    return found.size() > limit ? new ArrayList<>(found.subList(0, limit)) : found;
+                }
+                searchKm = Math.min(radiusKm, searchKm * 4);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private List<Neighbor> collectWithin(double latitude, double longitude, double radiusKm, LongPredicate filter) {
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        int minLatCell = latCell(Math.max(-90, latitude - latSpan));
+        int maxLatCell = latCell(Math.min(90, latitude + latSpan));
+
+        // Widest longitude span of the box is at the latitude edge nearest a pole
+        double maxAbsLat = Math.min(90, Math.abs(latitude) + latSpan);
+        double cos = Math.cos(Math.toRadians(maxAbsLat));
+        double lonSpan = cos < 1e-6 ? 360 : radiusKm / (KM_PER_DEGREE * cos);
+        int minLonCell;
+        int lonCellCount;
+        if (lonSpan >= 180) {
+            minLonCell = 0;
+            lonCellCount = LON_CELLS;
+        } else {
+            minLonCell = lonCell(longitude - lonSpan);
+            lonCellCount = Math.min(LON_CELLS, Math.floorMod(lonCell(longitude + lonSpan) - minLonCell, LON_CELLS) + 1);
+        }
+
+        List<Neighbor> found = new ArrayList<>();
+        for (int latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (int i = 0; i < lonCellCount; i++) {
+                Set<Long> carIds = cells.get(cellKey(latCell, (minLonCell + i) % LON_CELLS));
+                if (carIds == null) {
+                    continue;
+                }
+                for (Long carId : carIds) {
+                    Point point = points.get(carId);
+                    double distance = distanceKm(latitude, longitude, point.latitude(), point.longitude());
+                    if (distance <= radiusKm && filter.test(carId)) {
+                        found.add(new Neighbor(carId, distance));
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private void put(Long carId, Boolean isActive, Double latitude, Double longitude) {
+        lock.writeLock().lock();
+        try {
+            Point previous = points.remove(carId);
+            if (previous != null) {
+                Set<Long> cell = cells.get(previous.cell());
+                cell.remove(carId);
+                if (cell.isEmpty()) {
+                    cells.remove(previous.cell());
+                }
+            }
+            if (Boolean.TRUE.equals(isActive) && latitude != null && longitude != null) {
+                Point point = new Point(latitude, longitude, cellKey(latCell(latitude), lonCell(longitude)));
+                points.put(carId, point);
+                cells.computeIfAbsent(point.cell(), c -> new HashSet<>()).add(carId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int latCell(double latitude) {
+        return Math.min(LAT_CELLS - 1, (int) Math.floor((latitude + 90) / CELL_DEGREES));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / CELL_DEGREES), LON_CELLS);
+    }
+
+    private static int cellKey(int latCell, int lonCell) {
+        return latCell * LON_CELLS + lonCell;
+    }
+
+    private record Point(double latitude, double longitude, int cell) {
+    }
+}
@@ -0,0 +1,189 @@
+package com.caronrent.service;
+
+import com.caronrent.event.CarChangedEvent;
+import com.caronrent.repo.CarRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over Car.location and Car.brand for substring search without
+ * LIKE '%x%' scans. Exact substring matches rank first (prefix before infix);
+ * close misspellings are kept when enough of their trigrams match.
+ *
+ * Words are indexed with boundary padding ("$$goa$"), so the plain trigrams of a
+ * query find substring candidates while the padded ones score typo similarity.
+ */
+@Component
+public class CarNgramIndex implements CommandLineRunner {
+
+    public enum Field { LOCATION, BRAND }
+
+    // Share of the query's padded trigrams a fuzzy match must contain
+    private static final double MIN_SIMILARITY = 0.55;
+
+    private final CarRepository carRepository;
+    private final Map<Field, FieldIndex> fields = Map.of(
+            Field.LOCATION, new FieldIndex(),
+            Field.BRAND, new FieldIndex());
+
+    public CarNgramIndex(CarRepository carRepository) {
+        this.carRepository = carRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        List<CarRepository.CarListingView> cars = carRepository.findAllListingViews();
+        for (CarRepository.CarListingView car : cars) {
+            fields.get(Field.LOCATION).put(car.getId(), car.getLocation());
+            fields.get(Field.BRAND).put(car.getId(), car.getBrand());
+        }
+        System.out.println("✅ N-gram search index loaded: " + cars.size() + " cars");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        if (event.isDeleted()) {
+            fields.values().forEach(index -> index.remove(event.getCarId()));
+        } else {
+            fields.get(Field.LOCATION).put(event.getCarId(), event.getLocation());
+            fields.get(Field.BRAND).put(event.getCarId(), event.getBrand());
+        }
+    }
+
+    /**
+     * Car ids matching the query, best match first
+     */
+    public List<Long> search(Field field, String query) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        return fields.get(field).search(normalized);
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().toLowerCase().replaceAll("\\s+", " ");
+    }
+
+    static Set<String> trigrams(String normalized, boolean padded) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String word : normalized.split(" ")) {
+            String text = padded ? "$$" + word + "$" : word;
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                grams.add(text.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    private record Match(Long carId, int rank, double similarity) {
+    }
+
+    private static class FieldIndex {
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+        private final Map<Long, String> texts = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void put(Long carId, String text) {
+            String normalized = normalize(text);
+            lock.writeLock().lock();
+            try {
+                removeUnlocked(carId);
+                texts.put(carId, normalized);
+                for (String gram : trigrams(normalized, true)) {
+                    postings.computeIfAbsent(gram, g -> new HashSet<>()).add(carId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long carId) {
+            lock.writeLock().lock();
+            try {
+                removeUnlocked(carId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeUnlocked(Long carId) {
+            String previous = texts.remove(carId);
+            if (previous == null) {
+                return;
+            }
+            for (String gram : trigrams(previous, true)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null) {
+                    ids.remove(carId);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+
+        List<Long> search(String query) {
+            List<Match> matches = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                Set<String> queryGrams = trigrams(query, false);
+                if (queryGrams.isEmpty()) {
+                    // Shorter than a trigram: plain substring test over the in-memory texts
+                    texts.forEach((carId, text) -> {
+                        int rank = substringRank(text, query);
+                        if (rank >= 0) {
+                            matches.add(new Match(carId, rank, 1.0));
+                        }
+                    });
+                } else {
+                    Set<String> paddedGrams = trigrams(query, true);
+                    Map<Long, Integer> hits = new HashMap<>();
+                    for (String gram : paddedGrams) {
+                        for (Long carId : postings.getOrDefault(gram, Set.of())) {
+                            hits.merge(carId, 1, Integer::sum);
+                        }
+                    }
+                    hits.forEach((carId, count) -> {
+                        double similarity = (double) count / paddedGrams.size();
+                        int rank = substringRank(texts.get(carId), query);
+                        if (rank >= 0 || similarity >= MIN_SIMILARITY) {
+                            matches.add(new Match(carId, rank >= 0 ? rank : 2, similarity));
+                        }
+                    });
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            matches.sort(Comparator.comparingInt(Match::rank)
+                    .thenComparing(Comparator.comparingDouble(Match::similarity).reversed())
+                    .thenComparing(Match::carId));
+            return matches.stream().map(Match::carId).toList();
+        }
+
+        // 0 = prefix match, 1 = substring match, -1 = no exact match
+        private static int substringRank(String text, String query) {
+            int position = text.indexOf(query);
+            if (position < 0) {
+                return -1;
+            }
+            return position == 0 ? 0 : 1;
+        }
+    }
+}
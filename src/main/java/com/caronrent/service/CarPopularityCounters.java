@@ -0,0 +1,152 @@
+package com.caronrent.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-car view and search-impression counters kept off the read path.
+ *
+ * Hits only bump striped LongAdders keyed by the (encrypted) id the client sent, so
+ * recording never decrypts or touches the database. A scheduled flush drains the
+ * deltas, resolves each distinct key to a car id once, and adds them to
+ * car_popularity in one batched upsert; a crash loses at most one flush interval.
+ * The same flush decays the trending scores and rebuilds the trending list from a
+ * bounded top-K heap.
+ */
+@Component
+public class CarPopularityCounters {
+    private static final int TRENDING_CAPACITY = 100;
+    private static final double VIEW_WEIGHT = 1.0;
+    private static final double IMPRESSION_WEIGHT = 0.1;
+    private static final double MIN_SCORE = 0.01;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO car_popularity (car_id, view_count, impression_count, updated_at) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE view_count = view_count + VALUES(view_count), " +
+            "impression_count = impression_count + VALUES(impression_count), updated_at = VALUES(updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdEncryptionService idEncryptionService;
+
+    private final Map<String, Counts> pending = new ConcurrentHashMap<>();
+    // Only touched by flush(), which Spring runs on one scheduler thread at a time
+    private final Map<Long, Double> trendScores = new HashMap<>();
+    private volatile List<Long> trending = List.of();
+
+    @Value("${app.popularity.flush-interval-ms:30000}")
+    private long flushIntervalMs;
+
+    @Value("${app.popularity.trending-half-life-minutes:60}")
+    private long trendingHalfLifeMinutes;
+
+    public CarPopularityCounters(JdbcTemplate jdbcTemplate, IdEncryptionService idEncryptionService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idEncryptionService = idEncryptionService;
+    }
+
+    public void recordView(String encryptedCarId) {
+        countsFor(encryptedCarId).views.increment();
+    }
+
+    public void recordImpressions(Collection<String> encryptedCarIds) {
+        for (String encryptedCarId : encryptedCarIds) {
+            countsFor(encryptedCarId).impressions.increment();
+        }
+    }
+
+    /**
+     * Car ids with the highest recent (decayed) activity, best first
+     */
+    public List<Long> getTrendingCarIds(int limit) {
+        List<Long> current = trending;
+        return current.subList(0, Math.min(limit, current.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.popularity.flush-interval-ms:30000}")
+    public synchronized void flush() {
+        // Drain the deltas; idle keys are dropped (a hit racing the removal is within the loss budget)
+        Map<String, long[]> drained = new HashMap<>();
+        pending.forEach((key, counts) -> {
+            long views = counts.views.sumThenReset();
+            long impressions = counts.impressions.sumThenReset();
+            if (views == 0 && impressions == 0) {
+                pending.remove(key, counts);
+            } else {
+                drained.put(key, new long[]{views, impressions});
+            }
+        });
+
+        // Different spellings of one id (encrypted or plain) collapse onto the same car
+        Map<Long, long[]> byCar = new HashMap<>();
+        List<String> keys = new ArrayList<>(drained.keySet());
+        List<Long> carIds = idEncryptionService.decryptIds(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            long[] delta = drained.get(keys.get(i));
+            long[] total = byCar.computeIfAbsent(carIds.get(i), id -> new long[2]);
+            total[0] += delta[0];
+            total[1] += delta[1];
+        }
+
+        if (!byCar.isEmpty()) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> rows = new ArrayList<>(byCar.size());
+            byCar.forEach((carId, total) -> rows.add(new Object[]{carId, total[0], total[1], now}));
+            try {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+            } catch (DataAccessException e) {
+                System.err.println("⚠️ Popularity flush failed, dropping " + rows.size() + " rows: " + e.getMessage());
+            }
+        }
+        updateTrending(byCar);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void updateTrending(Map<Long, long[]> deltas) {
+        double decay = Math.pow(0.5, (double) flushIntervalMs / (trendingHalfLifeMinutes * 60_000.0));
+        trendScores.replaceAll((carId, score) -> score * decay);
+        deltas.forEach((carId, delta) ->
+                trendScores.merge(carId, delta[0] * VIEW_WEIGHT + delta[1] * IMPRESSION_WEIGHT, Double::sum));
+        trendScores.values().removeIf(score -> score < MIN_SCORE);
+
+        // Min-heap of the best TRENDING_CAPACITY scores
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Double> entry : trendScores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > TRENDING_CAPACITY) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<Long, Double>> top = new ArrayList<>(heap);
+        top.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder()));
+        trending = top.stream().map(Map.Entry::getKey).toList();
+    }
+
+    private Counts countsFor(String encryptedCarId) {
+        return pending.computeIfAbsent(encryptedCarId, key -> new Counts());
+    }
+
+    private static final class Counts {
+        final LongAdder views = new LongAdder();
+        final LongAdder impressions = new LongAdder();
+    }
+}
@@ -1,37 +1,132 @@
 package com.caronrent.service;
 
 import com.caronrent.dto.CarDTO;
+import com.caronrent.dto.CarFacetsDTO;
+import com.caronrent.dto.CarPageDTO;
 import com.caronrent.dto.CarResponseDTO;
+import com.caronrent.dto.CarSearchCriteria;
+import com.caronrent.dto.CarSort;
 import com.caronrent.dto.CarStatusDTO;
+import com.caronrent.dto.FieldSelection;
+import com.caronrent.dto.FlexibleAvailabilityDTO;
+import com.caronrent.dto.FlexibleWindowDTO;
+import com.caronrent.dto.NearbyCarDTO;
+import com.caronrent.dto.PriceBucketDTO;
 import com.caronrent.entity.Car;
 import com.caronrent.entity.CarImage;
 import com.caronrent.entity.User;
+import com.caronrent.event.CarChangedEvent;
 import com.caronrent.repo.CarRepository;
 import com.caronrent.repo.CarImageRepository;
+import com.caronrent.repo.CarSearchRepository;
+import com.caronrent.repo.CarSpecifications;
+import com.caronrent.repo.ColumnQueries;
 import com.caronrent.repo.UserRepository;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
 import jakarta.transaction.Transactional;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
 
 @Service
 public class CarService {
+    private static final int MAX_PAGE_SIZE = 100;
+    // Ids per cached keyset batch of a date-window search
+    private static final int CANDIDATE_BATCH_SIZE = 200;
+    // Extra trending ids fetched to cover cars unlisted since the last ranking
+    private static final int TRENDING_SLACK = 10;
+    private static final int MAX_TOLERANCE_DAYS = 14;
+    private static final double MAX_RADIUS_KM = 500;
+    private static final double PRICE_BUCKET_WIDTH = 1000;
+    private static final int MAX_BATCH_SIZE = 300;
+
+    // Sparse fieldsets: CarResponseDTO field -> Car attribute (imageUrls is loaded separately)
+    private static final Map<String, String> CAR_COLUMNS = Map.ofEntries(
+            Map.entry("id", "id"),
+            Map.entry("brand", "brand"),
+            Map.entry("model", "model"),
+            Map.entry("year", "year"),
+            Map.entry("registrationNumber", "registrationNumber"),
+            Map.entry("color", "color"),
+            Map.entry("dailyRate", "dailyRate"),
+            Map.entry("location", "location"),
+            Map.entry("latitude", "latitude"),
+            Map.entry("longitude", "longitude"),
+            Map.entry("description", "description"),
+            Map.entry("isAvailable", "isAvailable"),
+            Map.entry("isActive", "isActive"),
+            Map.entry("ownerEmail", "owner.email"),
+            Map.entry("createdAt", "createdAt"),
+            Map.entry("updatedAt", "updatedAt"));
+
     private final CarRepository carRepository;
     private final UserRepository userRepository;
     private final CarImageRepository carImageRepository;
     private final IdEncryptionService idEncryptionService;
     private final FileStorageService fileStorageService;
+    private final CarAvailabilityIndex carAvailabilityIndex;
+    private final CarNgramIndex carNgramIndex;
+    private final CarGeoIndex carGeoIndex;
+    private final CatalogCache catalogCache;
+    private final SearchResultCache searchResultCache;
+    private final CarSortIndex carSortIndex;
+    private final ColumnQueries columnQueries;
+    private final CarPopularityCounters carPopularityCounters;
+    private final CarSimilarityIndex carSimilarityIndex;
+    private final CarTextIndex carTextIndex;
+    private final EntityStreamer entityStreamer;
+    private final ApplicationEventPublisher eventPublisher;
 
     public CarService(CarRepository carRepository, UserRepository userRepository,
-                      CarImageRepository carImageRepository, IdEncryptionService idEncryptionService, FileStorageService fileStorageService) {
+                      CarImageRepository carImageRepository, IdEncryptionService idEncryptionService, FileStorageService fileStorageService,
+                      CarAvailabilityIndex carAvailabilityIndex, CarNgramIndex carNgramIndex, CarGeoIndex carGeoIndex,
+                      CatalogCache catalogCache, SearchResultCache searchResultCache, CarSortIndex carSortIndex,
+                      ColumnQueries columnQueries, CarPopularityCounters carPopularityCounters,
+                      CarSimilarityIndex carSimilarityIndex, CarTextIndex carTextIndex,
+                      EntityStreamer entityStreamer,
+                      ApplicationEventPublisher eventPublisher) {
         this.carRepository = carRepository;
         this.userRepository = userRepository;
         this.carImageRepository = carImageRepository;
         this.idEncryptionService = idEncryptionService;
         this.fileStorageService= fileStorageService;
+        this.carAvailabilityIndex = carAvailabilityIndex;
+        this.carNgramIndex = carNgramIndex;
+        this.carGeoIndex = carGeoIndex;
+        this.catalogCache = catalogCache;
+        this.searchResultCache = searchResultCache;
+        this.carSortIndex = carSortIndex;
+        this.columnQueries = columnQueries;
+        this.carPopularityCounters = carPopularityCounters;
+        this.carSimilarityIndex = carSimilarityIndex;
+        this.carTextIndex = carTextIndex;
+        this.entityStreamer = entityStreamer;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -53,6 +148,9 @@ public class CarService {
         car.setColor(carDTO.getColor());
         car.setDailyRate(carDTO.getDailyRate());
         car.setLocation(carDTO.getLocation());
+        validateCoordinates(carDTO.getLatitude(), carDTO.getLongitude());
+        car.setLatitude(carDTO.getLatitude());
+        car.setLongitude(carDTO.getLongitude());
         car.setDescription(carDTO.getDescription());
         car.setIsAvailable(true);
         car.setIsActive(true);
@@ -72,18 +170,31 @@ public class CarService {
             }
         }
 
+        eventPublisher.publishEvent(new CarChangedEvent(savedCar, false));
         return convertToResponseDTO(savedCar);
     }
 
-    public List<CarResponseDTO> getMyCars(String ownerEmail) {
+    public List<CarResponseDTO> getMyCars(String ownerEmail, FieldSelection fields) {
         User owner = userRepository.findByEmail(ownerEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        if (!fields.isAll()) {
+            return List.copyOf(findCarColumns(CarSpecifications.ownedBy(owner), Sort.by("id"), Integer.MAX_VALUE, fields).values());
+        }
         return carRepository.findByOwner(owner).stream()
                 .map(this::convertToResponseDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Streams the owner's cars to the sink one at a time (NDJSON mode)
+     */
+    @Transactional
+    public void streamMyCars(String ownerEmail, Consumer<? super CarResponseDTO> sink) {
+        entityStreamer.forEach(carRepository.streamByOwnerEmail(ownerEmail),
+                car -> sink.accept(convertToResponseDTO(car)));
+    }
+
     public CarResponseDTO updateCarStatus(String encryptedCarId, String ownerEmail, CarStatusDTO statusDTO) {
         Long carId = idEncryptionService.decryptId(encryptedCarId);
         Car car = carRepository.findById(carId)
@@ -103,91 +214,659 @@ public class CarService {
         }
 
         Car updatedCar = carRepository.save(car);
+        eventPublisher.publishEvent(new CarChangedEvent(updatedCar, false));
         return convertToResponseDTO(updatedCar);
     }
 
     public List<CarResponseDTO> getAllAvailableCars() {
+        return catalogCache.get(CatalogCache.ALL_CARS, this::loadAllAvailableCars);
+    }
+
+    /**
+     * Streams the same cars as getAllAvailableCars, without building the list
+     */
+    @Transactional
+    public void streamAllAvailableCars(Consumer<? super CarResponseDTO> sink) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> occupied = carAvailabilityIndex.findOccupiedCarIds(now, now.plusDays(1));
+        entityStreamer.forEach(carRepository.streamListedCars(), car -> {
+            if (!occupied.contains(car.getId())) {
+                sink.accept(convertToResponseDTO(car));
+            }
+        });
+    }
+
+    public CatalogSnapshot getAllAvailableCarsSnapshot() {
+        return catalogCache.getSnapshot(CatalogCache.ALL_CARS, this::loadAllAvailableCars);
+    }
+
+    private List<CarResponseDTO> loadAllAvailableCars() {
         List<Car> cars = carRepository.findByIsAvailableTrueAndIsActiveTrue();
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> occupied = carAvailabilityIndex.findOccupiedCarIds(now, now.plusDays(1));
 
         return cars.stream()
-                .filter(car -> car.getBookings().stream()
-                        .noneMatch(booking ->
-                                booking.overlapsWith(LocalDateTime.now(), LocalDateTime.now().plusDays(1)) &&
-                                        !"CANCELLED".equals(booking.getStatus()) &&
-                                        !"COMPLETED".equals(booking.getStatus())
-                        ))
+                .filter(car -> !occupied.contains(car.getId()))
                 .map(this::convertToResponseDTO)
                 .toList();
     }
 
-    public List<CarResponseDTO> getAvailableCarsByDate(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Car> cars = carRepository.findByIsAvailableTrueAndIsActiveTrue();
+    public CarPageDTO getAvailableCarsByDate(LocalDateTime startDate, LocalDateTime endDate, CarSort sort,
+                                             String cursor, Integer limit, FieldSelection fields) {
+        return pageOfFreeCars("dates", "", carRepository::findAvailableIdsForDates,
+                startDate, endDate, sort, cursor, limit, fields);
+    }
 
-        return cars.stream()
-                .filter(car -> isCarAvailableForDates(car, startDate, endDate))
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+    public List<CarResponseDTO> searchCarsByLocation(String location, CarSort sort, FieldSelection fields) {
+        return findListedCarsInOrder(sorted(carNgramIndex.search(CarNgramIndex.Field.LOCATION, location), sort), fields);
     }
 
-    private boolean isCarAvailableForDates(Car car, LocalDateTime startDate, LocalDateTime endDate) {
-        return car.getBookings().stream()
-                .noneMatch(booking ->
-                        booking.overlapsWith(startDate, endDate) &&
-                                !"CANCELLED".equals(booking.getStatus()) &&
-                                !"COMPLETED".equals(booking.getStatus())
-                );
+    public CarPageDTO searchCarsByLocationAndDate(String location, LocalDateTime startDate, LocalDateTime endDate,
+                                                  CarSort sort, String cursor, Integer limit, FieldSelection fields) {
+        return pageOfFreeMatches(carNgramIndex.search(CarNgramIndex.Field.LOCATION, location),
+                startDate, endDate, sort, cursor, limit, fields);
     }
 
-    public List<CarResponseDTO> searchCarsByLocation(String location) {
-        return carRepository.findByLocationContainingIgnoreCaseAndIsAvailableTrueAndIsActiveTrue(location).stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+    public List<CarResponseDTO> searchCarsByBrand(String brand, CarSort sort, FieldSelection fields) {
+        return findListedCarsInOrder(sorted(carNgramIndex.search(CarNgramIndex.Field.BRAND, brand), sort), fields);
     }
 
-    public List<CarResponseDTO> searchCarsByLocationAndDate(String location, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Car> cars = carRepository.findByLocationContainingIgnoreCaseAndIsAvailableTrueAndIsActiveTrue(location);
+    // Relevance order from the n-gram index unless a sort was requested
+    private List<Long> sorted(List<Long> carIds, CarSort sort) {
+        if (sort == null) {
+            return carIds;
+        }
+        List<Long> ordered = new ArrayList<>(carIds);
+        ordered.sort(carSortIndex.comparator(sort));
+        return ordered;
+    }
 
-        return cars.stream()
-                .filter(car -> isCarAvailableForDates(car, startDate, endDate))
+    /**
+     * Load ranked ids from an in-memory index in one query, keeping the index order
+     * and only the cars that are currently active and available
+     */
+    private List<CarResponseDTO> findListedCarsInOrder(List<Long> carIds, FieldSelection fields) {
+        if (carIds.isEmpty()) {
+            return List.of();
+        }
+        if (!fields.isAll()) {
+            Map<Long, CarResponseDTO> byId = findCarColumns(
+                    CarSpecifications.idIn(carIds).and(CarSpecifications.isListed()), Sort.unsorted(), Integer.MAX_VALUE, fields);
+            return carIds.stream()
+                    .map(byId::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+        }
+        Map<Long, Car> carsById = carRepository.findAllById(carIds).stream()
+                .collect(Collectors.toMap(Car::getId, Function.identity()));
+        return carIds.stream()
+                .map(carsById::get)
+                .filter(car -> car != null && car.getIsAvailable() && car.getIsActive())
                 .map(this::convertToResponseDTO)
                 .collect(Collectors.toList());
     }
 
-    public List<CarResponseDTO> searchCarsByBrand(String brand) {
-        return carRepository.findByBrandContainingIgnoreCaseAndIsAvailableTrueAndIsActiveTrue(brand).stream()
+    public CarPageDTO searchCarsByBrandAndDate(String brand, LocalDateTime startDate, LocalDateTime endDate,
+                                               CarSort sort, String cursor, Integer limit, FieldSelection fields) {
+        return pageOfFreeMatches(carNgramIndex.search(CarNgramIndex.Field.BRAND, brand),
+                startDate, endDate, sort, cursor, limit, fields);
+    }
+
+    public List<CarResponseDTO> searchCarsByPriceRange(Double minPrice, Double maxPrice, CarSort sort, FieldSelection fields) {
+        Sort order = sort == null ? Sort.unsorted() : CarSpecifications.orderOf(sort);
+        if (!fields.isAll()) {
+            return List.copyOf(findCarColumns(CarSpecifications.dailyRateBetween(minPrice, maxPrice).and(CarSpecifications.isListed()),
+                    order, Integer.MAX_VALUE, fields).values());
+        }
+        return carRepository.findByDailyRateBetweenAndIsAvailableTrueAndIsActiveTrue(minPrice, maxPrice, order).stream()
                 .map(this::convertToResponseDTO)
                 .collect(Collectors.toList());
     }
 
-    public List<CarResponseDTO> searchCarsByBrandAndDate(String brand, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Car> cars = carRepository.findByBrandContainingIgnoreCaseAndIsAvailableTrueAndIsActiveTrue(brand);
+    /**
+     * Full-text search over brand, model, location and description (BM25 order),
+     * optionally keeping only cars free for [startDate, endDate]
+     */
+    public List<CarResponseDTO> searchCarsByText(String text, LocalDateTime startDate, LocalDateTime endDate,
+                                                 int limit, FieldSelection fields) {
+        if (text == null || text.isBlank()) {
+            throw new RuntimeException("Search text is required");
+        }
+        checkLimit(limit);
+        validateDateWindow(startDate, endDate);
+
+        // Availability and listing flags are applied after ranking; widen the fetch if they drop too many
+        int fetchSize = limit;
+        while (true) {
+            List<Long> hits = carTextIndex.search(text, fetchSize);
+            List<Long> free = startDate == null ? hits : hits.stream()
+                    .filter(carId -> carAvailabilityIndex.isAvailable(carId, startDate, endDate))
+                    .toList();
+            List<CarResponseDTO> cars = findListedCarsInOrder(free, fields);
+            if (cars.size() >= limit || hits.size() < fetchSize) {
+                return cars.subList(0, Math.min(limit, cars.size()));
+            }
+            fetchSize *= 4;
+        }
+    }
 
-        return cars.stream()
-                .filter(car -> isCarAvailableForDates(car, startDate, endDate))
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+    public CarPageDTO searchCarsByPriceRangeAndDate(Double minPrice, Double maxPrice, LocalDateTime startDate, LocalDateTime endDate,
+                                                    CarSort sort, String cursor, Integer limit, FieldSelection fields) {
+        return pageOfFreeCars("price", minPrice + "-" + maxPrice,
+                (from, to, after, page) -> carRepository.findAvailableIdsByPriceRangeForDates(minPrice, maxPrice, from, to, after, page),
+                startDate, endDate, sort, cursor, limit, fields);
     }
 
-    public List<CarResponseDTO> searchCarsByPriceRange(Double minPrice, Double maxPrice) {
-        return carRepository.findByDailyRateBetweenAndIsAvailableTrueAndIsActiveTrue(minPrice, maxPrice).stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+    /**
+     * Unified search: any combination of criteria, executed as one dynamic query
+     */
+    public CarPageDTO searchCars(CarSearchCriteria criteria, CarSort sort, String cursor, Integer limit,
+                                 FieldSelection fields) {
+        validateDateWindow(criteria.getStartDate(), criteria.getEndDate());
+
+        Specification<Car> spec = CarSpecifications.fromCriteria(criteria);
+        if (sort == null) {
+            spec = spec.and(CarSpecifications.idAfter(decodeCursor(cursor)));
+        } else if (cursor != null && !cursor.isBlank()) {
+            // Resume after (sortKey, id) of the last car; the key comes from the in-memory sort index
+            Long afterId = idEncryptionService.decryptId(cursor);
+            Comparable<?> afterKey = carSortIndex.keyOf(sort, afterId);
+            if (afterKey == null) {
+                throw new RuntimeException("Invalid cursor");
+            }
+            spec = spec.and(CarSpecifications.after(sort, afterKey, afterId));
+        }
+        int fetchSize = limit == null ? Integer.MAX_VALUE : pageOf(limit).getPageSize();
+        if (!fields.isAll()) {
+            return toPage(List.copyOf(findCarColumns(spec, CarSpecifications.orderOf(sort), fetchSize, fields).values()), limit);
+        }
+        List<Car> cars = carRepository.search(spec, CarSpecifications.orderOf(sort), fetchSize);
+        return toPage(cars.stream().map(this::convertToResponseDTO).toList(), limit);
     }
 
-    public List<CarResponseDTO> searchCarsByPriceRangeAndDate(Double minPrice, Double maxPrice, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Car> cars = carRepository.findByDailyRateBetweenAndIsAvailableTrueAndIsActiveTrue(minPrice, maxPrice);
+    /**
+     * Flexible dates: shift the requested window by up to ±toleranceDays and report,
+     * per car, the earliest and the cheapest free window. All shifts of one car are
+     * checked in a single sweep over its booked intervals from the availability index.
+     */
+    public List<FlexibleAvailabilityDTO> searchFlexibleDates(String encryptedCarId, CarSearchCriteria criteria,
+                                                             LocalDateTime startDate, int durationDays, int toleranceDays) {
+        if (startDate == null) {
+            throw new RuntimeException("Start date is required");
+        }
+        if (durationDays < 1 || durationDays > 30) {
+            throw new RuntimeException("Duration must be between 1 and 30 days");
+        }
+        if (toleranceDays < 0 || toleranceDays > MAX_TOLERANCE_DAYS) {
+            throw new RuntimeException("Tolerance must be between 0 and " + MAX_TOLERANCE_DAYS + " days");
+        }
 
-        return cars.stream()
-                .filter(car -> isCarAvailableForDates(car, startDate, endDate))
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+        Car singleCar = null;
+        if (encryptedCarId != null) {
+            singleCar = carRepository.findById(idEncryptionService.decryptId(encryptedCarId))
+                    .orElseThrow(() -> new RuntimeException("Car not found"));
+            if (!singleCar.getIsAvailable() || !singleCar.getIsActive()) {
+                throw new RuntimeException("Car is not available for booking");
+            }
+        }
+
+        // Same lead time as BookingService.validateBookingDates
+        LocalDateTime earliestAllowed = LocalDateTime.now().plusHours(2);
+        List<LocalDateTime> starts = new ArrayList<>();
+        for (int shift = -toleranceDays; shift <= toleranceDays; shift++) {
+            LocalDateTime start = startDate.plusDays(shift);
+            if (!start.isBefore(earliestAllowed)) {
+                starts.add(start);
+            }
+        }
+        if (starts.isEmpty()) {
+            throw new RuntimeException("All candidate dates are in the past. Please select a later date.");
+        }
+
+        Comparator<FlexibleWindowDTO> byPriceThenCloseness = Comparator
+                .comparing(FlexibleWindowDTO::getTotalAmount)
+                .thenComparing(w -> Math.abs(Duration.between(startDate, w.getStartDate()).toMinutes()));
+
+        List<FlexibleAvailabilityDTO> results = new ArrayList<>();
+        if (singleCar != null) {
+            addFreeWindows(results, singleCar, starts, durationDays, byPriceThenCloseness);
+        } else {
+            // Every matching car is checked, read one keyset batch at a time
+            Specification<Car> spec = CarSpecifications.fromCriteria(withoutDates(criteria));
+            long after = 0;
+            List<Car> batch;
+            do {
+                batch = carRepository.search(spec.and(CarSpecifications.idAfter(after)), Sort.by("id"), MAX_PAGE_SIZE);
+                for (Car car : batch) {
+                    addFreeWindows(results, car, starts, durationDays, byPriceThenCloseness);
+                }
+                after = batch.isEmpty() ? after : batch.get(batch.size() - 1).getId();
+            } while (batch.size() == MAX_PAGE_SIZE);
+        }
+        results.sort(Comparator.comparing(r -> r.getCheapest().getTotalAmount()));
+        return results;
+    }
+
+    // Copy of the criteria for an undated scan; the caller's object is left as it was
+    private static CarSearchCriteria withoutDates(CarSearchCriteria criteria) {
+        CarSearchCriteria undated = new CarSearchCriteria();
+        undated.setLocation(criteria.getLocation());
+        undated.setBrand(criteria.getBrand());
+        undated.setMinPrice(criteria.getMinPrice());
+        undated.setMaxPrice(criteria.getMaxPrice());
+        undated.setYear(criteria.getYear());
+        undated.setColor(criteria.getColor());
+        return undated;
+    }
+
+    private void addFreeWindows(List<FlexibleAvailabilityDTO> results, Car car, List<LocalDateTime> starts,
+                                int durationDays, Comparator<FlexibleWindowDTO> byPriceThenCloseness) {
+        List<FlexibleWindowDTO> windows = findFreeWindows(car, starts, durationDays);
+        if (windows.isEmpty()) {
+            return;
+        }
+        FlexibleAvailabilityDTO result = new FlexibleAvailabilityDTO();
+        result.setCar(convertToResponseDTO(car));
+        result.setEarliest(windows.get(0));
+        result.setCheapest(windows.stream().min(byPriceThenCloseness).orElseThrow());
+        result.setFeasibleWindows(windows.size());
+        results.add(result);
+    }
+
+    /**
+     * Sweep candidate starts (ascending) against the car's booked intervals: an interval
+     * joins the open set once it starts before the window ends and leaves it once a
+     * window starts after it ends, so each interval is touched a constant number of times
+     */
+    private List<FlexibleWindowDTO> findFreeWindows(Car car, List<LocalDateTime> starts, int durationDays) {
+        LocalDateTime from = starts.get(0);
+        LocalDateTime to = starts.get(starts.size() - 1).plusDays(durationDays);
+        List<CarAvailabilityIndex.BookedInterval> booked = carAvailabilityIndex.getBookedIntervals(car.getId(), from, to);
+
+        PriorityQueue<CarAvailabilityIndex.BookedInterval> open =
+                new PriorityQueue<>(Comparator.comparing(CarAvailabilityIndex.BookedInterval::end));
+        List<FlexibleWindowDTO> free = new ArrayList<>();
+        int next = 0;
+        for (LocalDateTime start : starts) {
+            LocalDateTime end = start.plusDays(durationDays);
+            while (next < booked.size() && !booked.get(next).start().isAfter(end)) {
+                open.add(booked.get(next++));
+            }
+            while (!open.isEmpty() && open.peek().end().isBefore(start)) {
+                open.poll();
+            }
+            if (open.isEmpty()) {
+                long days = BookingService.calculateDaysBetween(start, end);
+                free.add(new FlexibleWindowDTO(start, end, (int) days, days * car.getDailyRate()));
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Keyset pagination helpers: the cursor is the encrypted id of the last car on the
+     * previous page, and one extra row is fetched to know whether another page exists
+     */
+    private Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        return idEncryptionService.decryptId(cursor);
+    }
+
+    private void validateDateWindow(LocalDateTime startDate, LocalDateTime endDate) {
+        if ((startDate == null) != (endDate == null)) {
+            throw new RuntimeException("Both startDate and endDate are required for a date search");
+        }
+        if (startDate != null && !endDate.isAfter(startDate)) {
+            throw new RuntimeException("End date must be after start date");
+        }
+    }
+
+    private void validateCoordinates(Double latitude, Double longitude) {
+        if ((latitude == null) != (longitude == null)) {
+            throw new RuntimeException("Both latitude and longitude are required");
+        }
+        if (latitude != null && (latitude < -90 || latitude > 90)) {
+            throw new RuntimeException("Latitude must be between -90 and 90");
+        }
+        if (longitude != null && (longitude < -180 || longitude > 180)) {
+            throw new RuntimeException("Longitude must be between -180 and 180");
+        }
+    }
+
+    private Pageable pageOf(Integer limit) {
+        if (limit == null) {
+            return Pageable.unpaged();
+        }
+        return PageRequest.of(0, checkLimit(limit) + 1);
+    }
+
+    private static int checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RuntimeException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    /**
+     * Keyset page over cached candidate batches: the batches after the cursor are read
+     * until the page is full, each id is re-checked against the exact window, then the
+     * page is loaded in one query
+     */
+    private CarPageDTO pageOfFreeCars(String search, String term, SearchResultCache.BatchLoader loader,
+                                      LocalDateTime startDate, LocalDateTime endDate,
+                                      CarSort sort, String cursor, Integer limit, FieldSelection fields) {
+        int pageSize = limit == null ? Integer.MAX_VALUE : checkLimit(limit);
+        if (sort != null) {
+            // Any candidate can sort first, so the whole id range is read (still batch by batch)
+            List<Long> candidateIds = new ArrayList<>();
+            long after = 0;
+            List<Long> batch;
+            do {
+                batch = searchResultCache.getCandidateBatch(search, term, startDate, endDate,
+                        after, CANDIDATE_BATCH_SIZE, loader);
+                candidateIds.addAll(batch);
+                after = batch.isEmpty() ? after : batch.get(batch.size() - 1);
+            } while (batch.size() == CANDIDATE_BATCH_SIZE);
+            return sortedPageOfFreeCars(candidateIds, startDate, endDate, sort, cursor, pageSize, fields);
+        }
+        long after = decodeCursor(cursor);
+        List<Long> pageIds = new ArrayList<>();
+        boolean hasMore = false;
+        while (true) {
+            List<Long> batch = searchResultCache.getCandidateBatch(search, term, startDate, endDate,
+                    after, CANDIDATE_BATCH_SIZE, loader);
+            for (Long carId : batch) {
+                if (!carAvailabilityIndex.isAvailable(carId, startDate, endDate)) {
+                    continue;
+                }
+                if (pageIds.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                pageIds.add(carId);
+            }
+            if (hasMore || batch.size() < CANDIDATE_BATCH_SIZE) {
+                break;
+            }
+            after = batch.get(batch.size() - 1);
+        }
+
+        String nextCursor = hasMore ? idEncryptionService.encryptId(pageIds.get(pageIds.size() - 1)) : null;
+        return new CarPageDTO(findListedCarsInOrder(pageIds, fields), nextCursor);
+    }
+
+    /**
+     * Page over n-gram matches (relevance order unless a sort was requested), so dated
+     * searches match the same cars as undated ones: matches are checked against the
+     * window in memory and listed cars are loaded until the page is full. The cursor
+     * is the last car on the previous page.
+     */
+    private CarPageDTO pageOfFreeMatches(List<Long> matchIds, LocalDateTime startDate, LocalDateTime endDate,
+                                         CarSort sort, String cursor, Integer limit, FieldSelection fields) {
+        int wanted = limit == null ? Integer.MAX_VALUE : checkLimit(limit) + 1;
+        List<Long> ordered = sorted(matchIds, sort);
+        int next = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            next = ordered.indexOf(idEncryptionService.decryptId(cursor)) + 1;
+            if (next == 0) {
+                throw new RuntimeException("Invalid cursor");
+            }
+        }
+
+        List<CarResponseDTO> cars = new ArrayList<>();
+        while (cars.size() < wanted && next < ordered.size()) {
+            // Unlisted matches are only dropped by the load, so load again if some were
+            List<Long> chunk = new ArrayList<>();
+            while (next < ordered.size() && chunk.size() < wanted - cars.size()) {
+                Long carId = ordered.get(next++);
+                if (carAvailabilityIndex.isAvailable(carId, startDate, endDate)) {
+                    chunk.add(carId);
+                }
+            }
+            cars.addAll(findListedCarsInOrder(chunk, fields));
+        }
+        return toPage(cars, limit);
+    }
+
+    private CarPageDTO sortedPageOfFreeCars(List<Long> candidateIds, LocalDateTime startDate, LocalDateTime endDate,
+                                            CarSort sort, String cursor, int pageSize, FieldSelection fields) {
+        Long afterId = cursor == null || cursor.isBlank() ? null : idEncryptionService.decryptId(cursor);
+        LongPredicate free = carId -> carAvailabilityIndex.isAvailable(carId, startDate, endDate);
+        List<Long> pageIds;
+        if (pageSize == Integer.MAX_VALUE) {
+            pageIds = candidateIds.stream()
+                    .filter(carId -> free.test(carId))
+                    .sorted(carSortIndex.comparator(sort))
+                    .toList();
+        } else {
+            pageIds = carSortIndex.topN(candidateIds, sort, afterId, pageSize + 1, free);
+        }
+
+        String nextCursor = null;
+        if (pageIds.size() > pageSize) {
+            pageIds = pageIds.subList(0, pageSize);
+            nextCursor = idEncryptionService.encryptId(pageIds.get(pageIds.size() - 1));
+        }
+        return new CarPageDTO(findListedCarsInOrder(pageIds, fields), nextCursor);
+    }
+
+    // The cursor is the (already encrypted) id of the last car on the page
+    private CarPageDTO toPage(List<CarResponseDTO> cars, Integer limit) {
+        String nextCursor = null;
+        if (limit != null && cars.size() > limit) {
+            cars = cars.subList(0, limit);
+            nextCursor = cars.get(cars.size() - 1).getId();
+        }
+        return new CarPageDTO(cars, nextCursor);
+    }
+
+    /**
+     * Sparse-fieldset read: selects only the requested columns, and fetches image URLs
+     * (one query for the whole list) only when they were asked for. Keyed by car id, in row order.
+     */
+    private Map<Long, CarResponseDTO> findCarColumns(Specification<Car> spec, Sort sort, int limit, FieldSelection fields) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (String field : fields.getFields()) {
+            String attributePath = CAR_COLUMNS.get(field);
+            if (attributePath != null) {
+                columns.put(field, attributePath);
+            }
+        }
+        List<Tuple> rows = columnQueries.select(Car.class, spec, columns, sort, limit);
+
+        Map<Long, List<String>> imageUrls = Map.of();
+        if (fields.includes("imageUrls") && !rows.isEmpty()) {
+            List<Long> carIds = rows.stream().map(row -> row.get("id", Long.class)).toList();
+            imageUrls = carImageRepository.findUrlsByCarIdIn(carIds).stream()
+                    .collect(Collectors.groupingBy(CarImageRepository.CarImageUrlView::getCarId,
+                            Collectors.mapping(CarImageRepository.CarImageUrlView::getImageUrl, Collectors.toList())));
+        }
+
+        Map<Long, CarResponseDTO> dtos = new LinkedHashMap<>();
+        for (Tuple row : rows) {
+            CarResponseDTO dto = new CarResponseDTO();
+            BeanWrapper wrapper = new BeanWrapperImpl(dto);
+            for (TupleElement<?> column : row.getElements()) {
+                if (!"id".equals(column.getAlias())) {
+                    wrapper.setPropertyValue(column.getAlias(), row.get(column));
+                }
+            }
+            Long carId = row.get("id", Long.class);
+            dto.setId(idEncryptionService.encryptId(carId));
+            dto.setImageUrls(imageUrls.get(carId));
+            dtos.put(carId, dto);
+        }
+        return dtos;
+    }
+
+    /**
+     * Facet counts (brand, location, year, price bucket) for the cars matching the criteria,
+     * rolled up from a single grouped query
+     */
+    public CarFacetsDTO getSearchFacets(CarSearchCriteria criteria) {
+        validateDateWindow(criteria.getStartDate(), criteria.getEndDate());
+
+        List<CarSearchRepository.FacetRow> rows = carRepository.facetCounts(CarSpecifications.fromCriteria(criteria));
+        Map<String, Long> brands = new HashMap<>();
+        Map<String, Long> locations = new HashMap<>();
+        Map<Integer, Long> years = new TreeMap<>(Comparator.reverseOrder());
+        Map<Integer, Long> priceBuckets = new TreeMap<>();
+        long total = 0;
+        for (CarSearchRepository.FacetRow row : rows) {
+            brands.merge(row.brand(), row.count(), Long::sum);
+            locations.merge(row.location(), row.count(), Long::sum);
+            years.merge(row.year(), row.count(), Long::sum);
+            priceBuckets.merge((int) Math.floor(row.dailyRate() / PRICE_BUCKET_WIDTH), row.count(), Long::sum);
+            total += row.count();
+        }
+
+        CarFacetsDTO facets = new CarFacetsDTO();
+        facets.setTotalCars(total);
+        facets.setBrands(byCountDescending(brands));
+        facets.setLocations(byCountDescending(locations));
+        facets.setYears(years);
+        facets.setPriceBuckets(priceBuckets.entrySet().stream()
+                .map(e -> new PriceBucketDTO(e.getKey() * PRICE_BUCKET_WIDTH,
+                        (e.getKey() + 1) * PRICE_BUCKET_WIDTH, e.getValue()))
+                .toList());
+        return facets;
+    }
+
+    private static <K> Map<K, Long> byCountDescending(Map<K, Long> counts) {
+        Map<K, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<K, Long>comparingByValue().reversed())
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    /**
+     * Nearest listed cars within radiusKm, optionally free for the whole date window
+     */
+    public List<NearbyCarDTO> findNearbyCars(Double latitude, Double longitude, Double radiusKm, Integer limit,
+                                             LocalDateTime startDate, LocalDateTime endDate) {
+        if (latitude == null || longitude == null) {
+            throw new RuntimeException("Both latitude and longitude are required");
+        }
+        validateCoordinates(latitude, longitude);
+        if (radiusKm == null || radiusKm <= 0 || radiusKm > MAX_RADIUS_KM) {
+            throw new RuntimeException("Radius must be between 0 and " + MAX_RADIUS_KM + " km");
+        }
+        if (limit == null || limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RuntimeException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        validateDateWindow(startDate, endDate);
+
+        LongPredicate free = startDate == null
+                ? carId -> true
+                : carId -> carAvailabilityIndex.isAvailable(carId, startDate, endDate);
+
+        // The geo index does not track isAvailable; widen the fetch if the database filter drops too many
+        int fetchSize = limit;
+        while (true) {
+            List<CarGeoIndex.Neighbor> neighbors = carGeoIndex.findNearest(latitude, longitude, radiusKm, fetchSize, free);
+            Map<Long, Car> carsById = carRepository.findAllById(
+                            neighbors.stream().map(CarGeoIndex.Neighbor::carId).toList()).stream()
+                    .collect(Collectors.toMap(Car::getId, Function.identity()));
+
+            List<NearbyCarDTO> results = new ArrayList<>();
+            for (CarGeoIndex.Neighbor neighbor : neighbors) {
+                Car car = carsById.get(neighbor.carId());
+                if (car != null && car.getIsAvailable() && car.getIsActive()) {
+                    results.add(new NearbyCarDTO(convertToResponseDTO(car), neighbor.distanceKm()));
+                    if (results.size() == limit) {
+                        return results;
+                    }
+                }
+            }
+            if (neighbors.size() < fetchSize) {
+                return results;
+            }
+            fetchSize *= 4;
+        }
     }
 
     public CarResponseDTO getCarById(String encryptedCarId) {
         Long carId = idEncryptionService.decryptId(encryptedCarId);
+        return catalogCache.get(CatalogCache.carKey(carId), () -> loadCar(carId));
+    }
+
+    public CatalogSnapshot getCarSnapshot(String encryptedCarId) {
+        Long carId = idEncryptionService.decryptId(encryptedCarId);
+        return catalogCache.getSnapshot(CatalogCache.carKey(carId), () -> loadCar(carId));
+    }
+
+    /**
+     * Looks up several cars in one query; results follow the request order,
+     * duplicates are returned once and unknown IDs are skipped
+     */
+    public List<CarResponseDTO> getCarsByIds(List<String> encryptedCarIds) {
+        if (encryptedCarIds == null || encryptedCarIds.isEmpty()) {
+            throw new RuntimeException("carIds is required");
+        }
+        if (encryptedCarIds.size() > MAX_BATCH_SIZE) {
+            throw new RuntimeException("At most " + MAX_BATCH_SIZE + " car IDs per request");
+        }
+
+        Set<Long> carIds = new LinkedHashSet<>(idEncryptionService.decryptIds(encryptedCarIds));
+        carIds.remove(null);
+        if (carIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Car> byId = carRepository.findByIdIn(carIds).stream()
+                .collect(Collectors.toMap(Car::getId, Function.identity()));
+        List<CarResponseDTO> result = new ArrayList<>(byId.size());
+        for (Long carId : carIds) {
+            Car car = byId.get(carId);
+            if (car != null) {
+                result.add(convertToResponseDTO(car));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Trending cars from the popularity counters' top-K list, skipping cars that are no longer listed
+     */
+    public List<CarResponseDTO> getTrendingCars(int limit) {
+        checkLimit(limit);
+        // A few trending cars may be unlisted by now; widen the fetch only if too many were
+        int fetchSize = limit + TRENDING_SLACK;
+        while (true) {
+            List<Long> trendingIds = carPopularityCounters.getTrendingCarIds(fetchSize);
+            List<CarResponseDTO> cars = findListedCarsInOrder(trendingIds, FieldSelection.ALL);
+            if (cars.size() >= limit || trendingIds.size() < fetchSize) {
+                return cars.subList(0, Math.min(limit, cars.size()));
+            }
+            fetchSize *= 4;
+        }
+    }
+
+    /**
+     * Similar cars from the precomputed neighbor list, keeping those free for the window
+     * (default: the next 24 hours) and still listed
+     */
+    public List<CarResponseDTO> getSimilarCars(String encryptedCarId, int limit,
+                                               LocalDateTime startDate, LocalDateTime endDate) {
+        checkLimit(limit);
+        validateDateWindow(startDate, endDate);
+        LocalDateTime from = startDate != null ? startDate : LocalDateTime.now();
+        LocalDateTime to = endDate != null ? endDate : from.plusDays(1);
+
+        Long carId = idEncryptionService.decryptId(encryptedCarId);
+        List<Long> free = carSimilarityIndex.getNeighbors(carId).stream()
+                .filter(neighborId -> carAvailabilityIndex.isAvailable(neighborId, from, to))
+                .toList();
+        List<CarResponseDTO> cars = findListedCarsInOrder(free, FieldSelection.ALL);
+        return cars.subList(0, Math.min(limit, cars.size()));
+    }
+
+    private CarResponseDTO loadCar(Long carId) {
         Car car = carRepository.findById(carId)
                 .orElseThrow(() -> new RuntimeException("Car not found"));
-
         return convertToResponseDTO(car);
     }
 
@@ -217,6 +896,7 @@ public class CarService {
 
         // Then delete the car
         carRepository.delete(car);
+        eventPublisher.publishEvent(new CarChangedEvent(car, true));
     }
 
     private CarResponseDTO convertToResponseDTO(Car car) {
@@ -229,6 +909,8 @@ public class CarService {
         dto.setColor(car.getColor());
         dto.setDailyRate(car.getDailyRate());
         dto.setLocation(car.getLocation());
+        dto.setLatitude(car.getLatitude());
+        dto.setLongitude(car.getLongitude());
         dto.setDescription(car.getDescription());
         dto.setIsAvailable(car.getIsAvailable());
         dto.setIsActive(car.getIsActive());
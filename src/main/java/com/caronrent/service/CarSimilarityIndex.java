@@ -0,0 +1,119 @@
+package com.caronrent.service;
+
+import com.caronrent.repo.CarRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Precomputed "similar cars" neighbor lists.
+ *
+ * A background job groups the active cars by location, sorts each group by daily
+ * rate and scores, for every car, only the cars inside its price band (a sliding
+ * window rather than all pairs). Segment similarity is approximated by brand and
+ * model year. The best NEIGHBORS per car are kept; requests only filter that short
+ * list against current availability, so a car booked while the job runs is not
+ * missing from the lists until the next rebuild.
+ */
+@Component
+public class CarSimilarityIndex implements CommandLineRunner {
+    private static final int NEIGHBORS = 20;
+    // Candidates must be within ±30% of the car's daily rate
+    private static final double PRICE_BAND = 0.3;
+    private static final int YEAR_SPAN = 5;
+    // Closest-priced cars examined on each side, so one crowded price point stays linear
+    private static final int MAX_SCAN = 200;
+
+    private final CarRepository carRepository;
+    private volatile Map<Long, List<Long>> neighborsByCar = Map.of();
+
+    public CarSimilarityIndex(CarRepository carRepository) {
+        this.carRepository = carRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.similar-cars.rebuild-interval-ms:600000}",
+            initialDelayString = "${app.similar-cars.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        Map<String, List<CarRepository.CarListingView>> byLocation = new HashMap<>();
+        for (CarRepository.CarListingView car : carRepository.findAllListingViews()) {
+            if (Boolean.TRUE.equals(car.getIsActive()) && car.getDailyRate() != null) {
+                byLocation.computeIfAbsent(CarNgramIndex.normalize(car.getLocation()), key -> new ArrayList<>()).add(car);
+            }
+        }
+
+        Map<Long, List<Long>> neighbors = new HashMap<>();
+        for (List<CarRepository.CarListingView> group : byLocation.values()) {
+            group.sort(Comparator.comparing(CarRepository.CarListingView::getDailyRate));
+            for (int i = 0; i < group.size(); i++) {
+                neighbors.put(group.get(i).getId(), nearest(group, i));
+            }
+        }
+        neighborsByCar = neighbors;
+        System.out.println("✅ Similar cars rebuilt: " + neighbors.size() + " cars in " + byLocation.size() + " locations");
+    }
+
+    /**
+     * Precomputed neighbors of a car, most similar first (empty if unknown)
+     */
+    public List<Long> getNeighbors(Long carId) {
+        return neighborsByCar.getOrDefault(carId, List.of());
+    }
+
+    // Best NEIGHBORS of group[index] among the cars in its price band (group is sorted by rate)
+    private static List<Long> nearest(List<CarRepository.CarListingView> group, int index) {
+        CarRepository.CarListingView car = group.get(index);
+        double rate = car.getDailyRate();
+        double low = rate * (1 - PRICE_BAND);
+        double high = rate * (1 + PRICE_BAND);
+
+        PriorityQueue<Scored> heap = new PriorityQueue<>(Comparator.comparingDouble(Scored::score));
+        int lowest = Math.max(0, index - MAX_SCAN);
+        int highest = Math.min(group.size() - 1, index + MAX_SCAN);
+        for (int j = index - 1; j >= lowest && group.get(j).getDailyRate() >= low; j--) {
+            offer(heap, car, group.get(j));
+        }
+        for (int j = index + 1; j <= highest && group.get(j).getDailyRate() <= high; j++) {
+            offer(heap, car, group.get(j));
+        }
+
+        List<Scored> best = new ArrayList<>(heap);
+        best.sort(Comparator.comparingDouble(Scored::score).reversed().thenComparing(Scored::carId));
+        return best.stream().map(Scored::carId).toList();
+    }
+
+    private static void offer(PriorityQueue<Scored> heap, CarRepository.CarListingView car,
+                              CarRepository.CarListingView other) {
+        heap.offer(new Scored(other.getId(), score(car, other)));
+        if (heap.size() > NEIGHBORS) {
+            heap.poll();
+        }
+    }
+
+    // Price closeness (0..1) + same brand (1) + model year closeness (0..1)
+    private static double score(CarRepository.CarListingView car, CarRepository.CarListingView other) {
+        double band = Math.max(car.getDailyRate() * PRICE_BAND, 1);
+        double score = 1 - Math.abs(other.getDailyRate() - car.getDailyRate()) / band;
+        if (car.getBrand() != null && car.getBrand().equalsIgnoreCase(other.getBrand())) {
+            score += 1;
+        }
+        if (car.getYear() != null && other.getYear() != null) {
+            score += Math.max(0, 1 - (double) Math.abs(car.getYear() - other.getYear()) / YEAR_SPAN);
+        }
+        return score;
+    }
+
+    private record Scored(long carId, double score) {
+    }
+}
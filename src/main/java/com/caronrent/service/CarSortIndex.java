@@ -0,0 +1,129 @@
+package com.caronrent.service;
+
+import com.caronrent.dto.CarSort;
+import com.caronrent.event.CarChangedEvent;
+import com.caronrent.repo.CarRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory sort keys (daily rate, creation time, year, booking count) for every car,
+ * so cached candidate id lists can be ordered and paged without another query.
+ * Top-N selection uses a bounded heap instead of sorting the whole candidate set.
+ */
+@Component
+public class CarSortIndex implements CommandLineRunner {
+
+    private final CarRepository carRepository;
+    private final Map<Long, SortKeys> keysByCar = new ConcurrentHashMap<>();
+
+    public CarSortIndex(CarRepository carRepository) {
+        this.carRepository = carRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        List<CarRepository.CarListingView> cars = carRepository.findAllListingViews();
+        for (CarRepository.CarListingView car : cars) {
+            keysByCar.put(car.getId(), new SortKeys(car.getDailyRate(), car.getCreatedAt(),
+                    car.getYear(), car.getBookingCount()));
+        }
+        System.out.println("✅ Sort index loaded: " + cars.size() + " cars");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        if (event.isDeleted()) {
+            keysByCar.remove(event.getCarId());
+        } else {
+            keysByCar.put(event.getCarId(), new SortKeys(event.getDailyRate(), event.getCreatedAt(),
+                    event.getYear(), event.getBookingCount()));
+        }
+    }
+
+    /**
+     * Sort key of one car (used to resume a keyset page in the database), or null if unknown
+     */
+    public Comparable<?> keyOf(CarSort sort, Long carId) {
+        SortKeys keys = keysByCar.get(carId);
+        return keys == null ? null : keys.get(sort);
+    }
+
+    /**
+     * Full ordering of car ids for the given sort; unknown ids go last
+     */
+    public Comparator<Long> comparator(CarSort sort) {
+        Comparator<Long> byKey = (a, b) -> {
+            SortKeys keysA = keysByCar.get(a);
+            SortKeys keysB = keysByCar.get(b);
+            if (keysA == null || keysB == null) {
+                return keysA == null ? (keysB == null ? 0 : 1) : -1;
+            }
+            int cmp = compareKeys(keysA.get(sort), keysB.get(sort));
+            return sort.isDescending() ? -cmp : cmp;
+        };
+        Comparator<Long> byId = sort.isDescending() ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        return byKey.thenComparing(byId);
+    }
+
+    /**
+     * The first n candidates (in sort order) that come after the cursor car and pass the filter
+     */
+    public List<Long> topN(Collection<Long> candidateIds, CarSort sort, Long afterCarId, int n, LongPredicate filter) {
+        // Unknown ids sort last, so a deleted cursor car would silently end pagination
+        if (afterCarId != null && !keysByCar.containsKey(afterCarId)) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        Comparator<Long> order = comparator(sort);
+        // Max-heap on the sort order: the root is the worst of the best n seen so far
+        PriorityQueue<Long> best = new PriorityQueue<>(n + 1, order.reversed());
+        for (Long carId : candidateIds) {
+            if (afterCarId != null && order.compare(carId, afterCarId) <= 0) {
+                continue;
+            }
+            if (best.size() == n && order.compare(carId, best.peek()) >= 0) {
+                continue;
+            }
+            if (!filter.test(carId)) {
+                continue;
+            }
+            best.add(carId);
+            if (best.size() > n) {
+                best.poll();
+            }
+        }
+        List<Long> result = new ArrayList<>(best);
+        result.sort(order);
+        return result;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareKeys(Comparable a, Comparable b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    private record SortKeys(Double dailyRate, LocalDateTime createdAt, Integer year, Long bookingCount) {
+        Comparable<?> get(CarSort sort) {
+            return switch (sort) {
+                case PRICE_ASC, PRICE_DESC -> dailyRate;
+                case NEWEST -> createdAt;
+                case YEAR -> year;
+                case POPULARITY -> bookingCount;
+            };
+        }
+    }
+}
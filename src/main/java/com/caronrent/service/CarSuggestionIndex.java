@@ -0,0 +1,91 @@
+package com.caronrent.service;
+
+import com.caronrent.dto.SuggestResponseDTO;
+import com.caronrent.dto.SuggestionDTO;
+import com.caronrent.event.CarChangedEvent;
+import com.caronrent.repo.CarRepository;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix autocomplete for locations, brands and brand+model pairs, ranked by the
+ * number of active listings. Built from the cars table at startup and updated
+ * incrementally from CarChangedEvent.
+ */
+@Component
+public class CarSuggestionIndex implements CommandLineRunner {
+
+    private final CarRepository carRepository;
+    private final RadixTrie locations = new RadixTrie();
+    private final RadixTrie brands = new RadixTrie();
+    private final RadixTrie models = new RadixTrie();
+
+    // What each active car currently contributes, so updates can be undone exactly
+    private final Map<Long, Listing> listings = new HashMap<>();
+
+    public CarSuggestionIndex(CarRepository carRepository) {
+        this.carRepository = carRepository;
+    }
+
+    @Override
+    public void run(String... args) {
+        List<CarRepository.CarListingView> cars = carRepository.findAllListingViews();
+        for (CarRepository.CarListingView car : cars) {
+            update(car.getId(), Boolean.TRUE.equals(car.getIsActive()),
+                    new Listing(car.getLocation(), car.getBrand(), car.getModel()));
+        }
+        System.out.println("✅ Suggestion index loaded: " + listings.size() + " active listings");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        boolean active = !event.isDeleted() && Boolean.TRUE.equals(event.getIsActive());
+        update(event.getCarId(), active, new Listing(event.getLocation(), event.getBrand(), event.getModel()));
+    }
+
+    public synchronized SuggestResponseDTO suggest(String prefix, int limit) {
+        String key = CarNgramIndex.normalize(prefix);
+        SuggestResponseDTO response = new SuggestResponseDTO();
+        response.setLocations(toSuggestions(locations.topK(key, limit)));
+        response.setBrands(toSuggestions(brands.topK(key, limit)));
+        response.setModels(toSuggestions(models.topK(key, limit)));
+        return response;
+    }
+
+    private synchronized void update(Long carId, boolean active, Listing listing) {
+        Listing previous = listings.remove(carId);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        if (active) {
+            listings.put(carId, listing);
+            apply(listing, 1);
+        }
+    }
+
+    private void apply(Listing listing, int delta) {
+        add(locations, listing.location(), delta);
+        add(brands, listing.brand(), delta);
+        add(models, listing.brand() + " " + listing.model(), delta);
+    }
+
+    private static void add(RadixTrie trie, String display, int delta) {
+        if (display != null) {
+            trie.add(CarNgramIndex.normalize(display), display.trim(), delta);
+        }
+    }
+
+    private static List<SuggestionDTO> toSuggestions(List<RadixTrie.Entry> entries) {
+        return entries.stream()
+                .map(entry -> new SuggestionDTO(entry.display(), entry.count()))
+                .toList();
+    }
+
+    private record Listing(String location, String brand, String model) {
+    }
+}
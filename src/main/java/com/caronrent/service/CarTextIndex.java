@@ -0,0 +1,172 @@
+package com.caronrent.service;
+
+import com.caronrent.event.CarChangedEvent;
+import com.caronrent.repo.CarRepository;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedded Lucene index over brand, model, location and description, ranked with BM25
+ * (Lucene's default similarity, also set on the writer).
+ *
+ * Lives on disk under app.text-index.dir (in memory when blank). Car changes are
+ * applied as they are committed and are searchable right away; the index itself is
+ * committed to disk every few seconds. On startup it is rebuilt from the cars table
+ * when the document count does not match.
+ */
+@Component
+public class CarTextIndex implements CommandLineRunner {
+    private static final String ID = "id";
+    private static final String BRAND = "brand";
+    private static final String MODEL = "model";
+    private static final String LOCATION = "location";
+    private static final String DESCRIPTION = "description";
+    // Matches in the short fields count more than a word somewhere in the description
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(BRAND, 3f, MODEL, 3f, LOCATION, 2f, DESCRIPTION, 1f);
+
+    private final CarRepository carRepository;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    public CarTextIndex(CarRepository carRepository, @Value("${app.text-index.dir:}") String indexDir) throws IOException {
+        this.carRepository = carRepository;
+        this.directory = indexDir.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Path.of(indexDir));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setSimilarity(new BM25Similarity()));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    @Override
+    public void run(String... args) {
+        long cars = carRepository.count();
+        int documents = writer.getDocStats().numDocs;
+        if (documents != cars) {
+            rebuild();
+        } else {
+            System.out.println("✅ Text index opened: " + documents + " cars");
+        }
+    }
+
+    /**
+     * Re-index every car from the database
+     */
+    public synchronized int rebuild() {
+        List<CarRepository.CarTextView> cars = carRepository.findAllTextViews();
+        try {
+            writer.deleteAll();
+            for (CarRepository.CarTextView car : cars) {
+                writer.updateDocument(new Term(ID, String.valueOf(car.getId())),
+                        toDocument(car.getId(), car.getBrand(), car.getModel(), car.getLocation(), car.getDescription()));
+            }
+            writer.commit();
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new RuntimeException("Text index rebuild failed", e);
+        }
+        System.out.println("✅ Text index rebuilt: " + cars.size() + " cars");
+        return cars.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCarChanged(CarChangedEvent event) {
+        Term id = new Term(ID, String.valueOf(event.getCarId()));
+        try {
+            if (event.isDeleted()) {
+                writer.deleteDocuments(id);
+            } else {
+                writer.updateDocument(id, toDocument(event.getCarId(), event.getBrand(), event.getModel(),
+                        event.getLocation(), event.getDescription()));
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            System.err.println("⚠️ Text index update failed for car " + event.getCarId() + ": " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.text-index.commit-interval-ms:5000}")
+    public void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    /**
+     * Car ids matching the text, best BM25 score first. Plain words are OR-ed;
+     * "quoted phrases", +required, -excluded and prefix* are supported.
+     */
+    public List<Long> search(String text, int limit) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_WEIGHTS);
+        parser.setDefaultOperator(BooleanClause.Occur.SHOULD);
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                ScoreDoc[] hits = searcher.search(parser.parse(text), limit).scoreDocs;
+                StoredFields storedFields = searcher.storedFields();
+                List<Long> carIds = new ArrayList<>(hits.length);
+                for (ScoreDoc hit : hits) {
+                    carIds.add(Long.valueOf(storedFields.document(hit.doc).get(ID)));
+                }
+                return carIds;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Text search failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private static Document toDocument(Long carId, String brand, String model, String location, String description) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(carId), Field.Store.YES));
+        addText(document, BRAND, brand);
+        addText(document, MODEL, model);
+        addText(document, LOCATION, location);
+        addText(document, DESCRIPTION, description);
+        return document;
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null) {
+            document.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+}
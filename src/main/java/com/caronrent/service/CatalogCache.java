@@ -0,0 +1,205 @@
+package com.caronrent.service;
+
+import com.caronrent.event.BookingChangedEvent;
+import com.caronrent.event.CarChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache for the public car catalog with explicit invalidation.
+ * Invalidated or expired entries are still served for up to max-stale seconds
+ * while a single background refresh reloads them (stale-while-revalidate).
+ * Public listing responses are also kept as pre-serialized {@link CatalogSnapshot}s.
+ */
+@Component
+public class CatalogCache {
+
+    public static final String ALL_CARS = "all";
+
+    private static final String SNAPSHOT_PREFIX = "snapshot:";
+
+    public static String carKey(Long carId) {
+        return "car:" + carId;
+    }
+
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Map<String, Entry> entries;
+    // Catalog version, bumped on every invalidation so a load racing with a change is stored as already stale
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Value("${app.catalog-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.catalog-cache.max-stale-seconds:300}")
+    private long maxStaleSeconds;
+
+    public CatalogCache(PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                        @Value("${app.catalog-cache.max-entries:1000}") int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached value for key, loading it (inside a read-only transaction) on a miss
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        long now = System.currentTimeMillis();
+        if (entry != null) {
+            long age = now - entry.loadedAt();
+            if (!entry.invalidated() && age < ttlSeconds * 1000) {
+                hits.increment();
+                return (T) entry.value();
+            }
+            if (age < maxStaleSeconds * 1000) {
+                staleHits.increment();
+                refreshInBackground(key, loader);
+                return (T) entry.value();
+            }
+        }
+        misses.increment();
+        return load(key, loader);
+    }
+
+    /**
+     * Pre-serialized JSON snapshot of the value cached under key
+     */
+    public CatalogSnapshot getSnapshot(String key, Supplier<?> loader) {
+        return get(SNAPSHOT_PREFIX + key, () -> serialize(loader.get()));
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public void invalidate(String key) {
+        invalidations.increment();
+        version.incrementAndGet();
+        synchronized (entries) {
+            markInvalidated(key);
+            markInvalidated(SNAPSHOT_PREFIX + key);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        invalidate(ALL_CARS);
+        invalidate(carKey(event.getCarId()));
+    }
+
+    // Booking transitions flip Car.isAvailable and change what /public/all returns
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        invalidate(ALL_CARS);
+        invalidate(carKey(event.getCarId()));
+    }
+
+    public Map<String, Object> getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", version.get());
+        stats.put("size", size);
+        stats.put("hits", hits.sum());
+        stats.put("staleHits", staleHits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("refreshes", refreshes.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    private CatalogSnapshot serialize(Object value) {
+        long snapshotVersion = version.get();
+        try {
+            return CatalogSnapshot.of(snapshotVersion, objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize catalog snapshot", e);
+        }
+    }
+
+    // Caller holds the entries lock
+    private void markInvalidated(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entries.put(key, entry.asInvalidated());
+        }
+    }
+
+    private <T> T load(String key, Supplier<T> loader) {
+        long startVersion = version.get();
+        T value = readOnlyTransaction.execute(status -> loader.get());
+        synchronized (entries) {
+            entries.put(key, new Entry(value, System.currentTimeMillis(), version.get() != startVersion));
+        }
+        return value;
+    }
+
+    private <T> void refreshInBackground(String key, Supplier<T> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            try {
+                load(key, loader);
+                refreshes.increment();
+            } catch (Exception e) {
+                // Drop the entry so the next request loads (and reports) it synchronously
+                synchronized (entries) {
+                    entries.remove(key);
+                }
+                System.err.println("⚠️ Catalog cache refresh failed for " + key + ": " + e.getMessage());
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    private record Entry(Object value, long loadedAt, boolean invalidated) {
+        Entry asInvalidated() {
+            return new Entry(value, loadedAt, true);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.caronrent.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pre-serialized JSON response body, tagged with the catalog version it was built at.
+ * Bodies above the gzip threshold also keep a compressed copy.
+ */
+public record CatalogSnapshot(long version, byte[] body, byte[] gzipBody, String etag) {
+
+    private static final int GZIP_THRESHOLD_BYTES = 1024;
+
+    static CatalogSnapshot of(long version, byte[] body) {
+        byte[] gzipBody = body.length >= GZIP_THRESHOLD_BYTES ? gzip(body) : null;
+        return new CatalogSnapshot(version, body, gzipBody, "\"" + version + "-" + digest(body) + "\"");
+    }
+
+    public boolean hasGzip() {
+        return gzipBody != null;
+    }
+
+    /**
+     * Strong ETag for the chosen encoding (each representation needs its own)
+     */
+    public String etag(boolean gzip) {
+        return gzip ? etag.substring(0, etag.length() - 1) + "-gz\"" : etag;
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String digest(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.caronrent.service;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Walks a repository Stream query row by row, clearing the persistence context
+ * every few rows so heap use stays flat however many rows the cursor returns.
+ * Must be called inside a transaction (the cursor holds the connection).
+ */
+@Component
+public class EntityStreamer {
+
+    private static final int CLEAR_INTERVAL = 100;
+
+    private final EntityManager entityManager;
+
+    public EntityStreamer(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public <T> void forEach(Stream<T> rows, Consumer<T> action) {
+        try (rows) {
+            int[] seen = {0};
+            rows.forEach(row -> {
+                action.accept(row);
+                if (++seen[0] % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
+    }
+}
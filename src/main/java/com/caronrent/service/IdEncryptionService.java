@@ -5,7 +5,9 @@ import org.springframework.stereotype.Service;
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 
 @Service
 public class IdEncryptionService {
@@ -43,17 +45,24 @@ public class IdEncryptionService {
         if (encryptedId == null || encryptedId.isEmpty()) {
             return null;
         }
+        return decrypt(newCipher(Cipher.DECRYPT_MODE), encryptedId);
+    }
+
+    /**
+     * Decrypts a batch of IDs with one cipher instance, keeping the input order
+     */
+    public List<Long> decryptIds(List<String> encryptedIds) {
+        Cipher cipher = newCipher(Cipher.DECRYPT_MODE);
+        List<Long> ids = new ArrayList<>(encryptedIds.size());
+        for (String encryptedId : encryptedIds) {
+            ids.add(encryptedId == null || encryptedId.isEmpty() ? null : decrypt(cipher, encryptedId));
+        }
+        return ids;
+    }
 
+    private Long decrypt(Cipher cipher, String encryptedId) {
         try {
             // Try to decrypt as Base64 URL encoded
-            byte[] keyBytes = encryptionKey.getBytes(StandardCharsets.UTF_8);
-            byte[] paddedKey = new byte[32];
-            System.arraycopy(keyBytes, 0, paddedKey, 0, Math.min(keyBytes.length, 32));
-
-            SecretKeySpec secretKey = new SecretKeySpec(paddedKey, ALGORITHM);
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
-
             byte[] decoded = Base64.getUrlDecoder().decode(encryptedId);
             byte[] decrypted = cipher.doFinal(decoded);
             return Long.parseLong(new String(decrypted, StandardCharsets.UTF_8));
@@ -66,4 +75,20 @@ public class IdEncryptionService {
             }
         }
     }
-}
\ No newline at end of file
+
+    private Cipher newCipher(int mode) {
+        try {
+            // Ensure key is 32 bytes for AES-256
+            byte[] keyBytes = encryptionKey.getBytes(StandardCharsets.UTF_8);
+            byte[] paddedKey = new byte[32];
+            System.arraycopy(keyBytes, 0, paddedKey, 0, Math.min(keyBytes.length, 32));
+
+            SecretKeySpec secretKey = new SecretKeySpec(paddedKey, ALGORITHM);
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(mode, secretKey);
+            return cipher;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to initialise cipher", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.caronrent.service;
+
+/**
+ * Word-level helpers for per-car occupancy bitmaps (one bit per hour slot).
+ */
+final class OccupancyBitmap {
+
+    private OccupancyBitmap() {
+    }
+
+    static long[] create(int slots) {
+        return new long[(slots + 63) >>> 6];
+    }
+
+    /**
+     * Set every bit in [fromSlot, toSlot]
+     */
+    static void set(long[] words, int fromSlot, int toSlot) {
+        int fromWord = fromSlot >>> 6;
+        int toWord = toSlot >>> 6;
+        long firstMask = -1L << (fromSlot & 63);
+        long lastMask = -1L >>> (63 - (toSlot & 63));
+        if (fromWord == toWord) {
+            words[fromWord] |= firstMask & lastMask;
+            return;
+        }
+        words[fromWord] |= firstMask;
+        for (int i = fromWord + 1; i < toWord; i++) {
+            words[i] = -1L;
+        }
+        words[toWord] |= lastMask;
+    }
+
+    /**
+     * True if any bit in [fromSlot, toSlot] is set
+     */
+    static boolean anySet(long[] words, int fromSlot, int toSlot) {
+        int fromWord = fromSlot >>> 6;
+        int toWord = toSlot >>> 6;
+        long firstMask = -1L << (fromSlot & 63);
+        long lastMask = -1L >>> (63 - (toSlot & 63));
+        if (fromWord == toWord) {
+            return (words[fromWord] & firstMask & lastMask) != 0;
+        }
+        if ((words[fromWord] & firstMask) != 0) {
+            return true;
+        }
+        for (int i = fromWord + 1; i < toWord; i++) {
+            if (words[i] != 0) {
+                return true;
+            }
+        }
+        return (words[toWord] & lastMask) != 0;
+    }
+}
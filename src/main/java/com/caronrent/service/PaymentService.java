@@ -4,12 +4,15 @@ import com.caronrent.dto.CreatePaymentRequest;
 import com.caronrent.dto.PaymentResponse;
 import com.caronrent.dto.PaymentVerificationRequest;
 import com.caronrent.entity.Booking;
+import com.caronrent.event.BookingChangedEvent;
 import com.caronrent.repo.BookingRepository;
+import com.caronrent.repo.CarRepository;
 import com.razorpay.Order;
 import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,14 +21,18 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 @Service
 public class PaymentService {
 
     private final RazorpayClient razorpayClient;
     private final BookingRepository bookingRepository;
+    private final CarRepository carRepository;
     private final IdEncryptionService idEncryptionService;
     private final EmailService emailService;
+    private final BookingSlotLedger bookingSlotLedger;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${razorpay.key.id}")
     private String razorpayKeyId;
@@ -34,11 +41,16 @@ public class PaymentService {
     private String razorpayKeySecret;
 
     public PaymentService(RazorpayClient razorpayClient, BookingRepository bookingRepository,
-                          IdEncryptionService idEncryptionService, EmailService emailService) {
+                          CarRepository carRepository, IdEncryptionService idEncryptionService,
+                          EmailService emailService, BookingSlotLedger bookingSlotLedger,
+                          ApplicationEventPublisher eventPublisher) {
         this.razorpayClient = razorpayClient;
         this.bookingRepository = bookingRepository;
+        this.carRepository = carRepository;
         this.idEncryptionService = idEncryptionService;
         this.emailService = emailService;
+        this.bookingSlotLedger = bookingSlotLedger;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -83,10 +95,17 @@ public class PaymentService {
         return response;
     }
 
+    /**
+     * Verify a payment and confirm the booking. A payment for a booking whose hold has
+     * expired (or that was cancelled) is refunded instead: its slots may already belong
+     * to another booking. Check the returned booking's status. Replaying a payment that
+     * was already confirmed or refunded returns the booking unchanged.
+     */
     @Transactional
     public Booking verifyPayment(PaymentVerificationRequest request) {
         Long bookingId = idEncryptionService.decryptId(request.getBookingId());
-        Booking booking = bookingRepository.findById(bookingId)
+        // Locked so the hold-expiry wheel cannot cancel the booking while the payment is applied
+        Booking booking = bookingRepository.findByIdForUpdate(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
         try {
@@ -95,11 +114,26 @@ public class PaymentService {
             String generatedSignature = calculateHMAC(data, razorpayKeySecret);
 
             if (generatedSignature.equals(request.getRazorpaySignature())) {
+                if (isPaidWith(booking, request.getRazorpayPaymentId())) {
+                    // Retried verify or duplicate callback
+                    return booking;
+                }
+                if (isHoldLapsed(booking)) {
+                    if ("REFUNDED".equals(booking.getPaymentStatus())) {
+                        return booking;
+                    }
+                    return refundLatePayment(booking, request.getRazorpayPaymentId());
+                }
+                if (!isAwaitingPayment(booking)) {
+                    throw new RuntimeException("Booking is not in payment pending state");
+                }
+
                 // Payment successful - Update booking status
                 booking.setPaymentStatus("PAID");
                 booking.setPaymentId(request.getRazorpayPaymentId());
                 booking.setAmountPaid(booking.getTotalAmount());
                 booking.setStatus("PAYMENT_CONFIRMED");
+                booking.setHoldExpiresAt(null);
                 booking.setUpdatedAt(LocalDateTime.now());
 
                 // Log payment success
@@ -109,6 +143,7 @@ public class PaymentService {
                 System.out.println("🚗 Car owner: " + booking.getCar().getOwner().getEmail());
 
                 Booking savedBooking = bookingRepository.save(booking);
+                eventPublisher.publishEvent(new BookingChangedEvent(savedBooking));
 
                 // Send payment success emails
                 sendPaymentSuccessEmails(savedBooking);
@@ -116,18 +151,76 @@ public class PaymentService {
                 return savedBooking;
             } else {
                 // Signature mismatch
-                booking.setPaymentStatus("FAILED");
-                bookingRepository.save(booking);
+                markPaymentFailed(booking);
                 throw new RuntimeException("Invalid payment signature");
             }
         } catch (Exception e) {
             // Payment verification failed
-            booking.setPaymentStatus("FAILED");
-            bookingRepository.save(booking);
+            markPaymentFailed(booking);
             throw new RuntimeException("Payment verification failed: " + e.getMessage());
         }
     }
 
+    private static boolean isAwaitingPayment(Booking booking) {
+        return "PAYMENT_PENDING".equals(booking.getStatus()) && booking.getHoldExpiresAt() != null
+                && LocalDateTime.now().isBefore(booking.getHoldExpiresAt());
+    }
+
+    private static boolean isHoldLapsed(Booking booking) {
+        return "CANCELLED".equals(booking.getStatus())
+                || ("PAYMENT_PENDING".equals(booking.getStatus()) && !isAwaitingPayment(booking));
+    }
+
+    private static boolean isPaidWith(Booking booking, String paymentId) {
+        return ("PAYMENT_CONFIRMED".equals(booking.getStatus()) || "CONFIRMED".equals(booking.getStatus()))
+                && paymentId != null && paymentId.equals(booking.getPaymentId());
+    }
+
+    // A failed attempt must not overwrite the status of a payment that already went through
+    private void markPaymentFailed(Booking booking) {
+        if ("PAID".equals(booking.getPaymentStatus()) || "REFUNDED".equals(booking.getPaymentStatus())) {
+            return;
+        }
+        booking.setPaymentStatus("FAILED");
+        bookingRepository.save(booking);
+    }
+
+    /**
+     * Refund a payment that arrived after the booking's hold ran out, and cancel the
+     * booking if the hold-expiry wheel has not done so yet
+     */
+    private Booking refundLatePayment(Booking booking, String paymentId) throws RazorpayException {
+        JSONObject refundRequest = new JSONObject();
+        refundRequest.put("amount", (int) (booking.getTotalAmount() * 100)); // Amount in paise
+        refundRequest.put("speed", "normal");
+        refundRequest.put("notes", new JSONObject()
+                .put("booking_id", booking.getId())
+                .put("reason", "Booking hold expired before payment"));
+
+        com.razorpay.Refund refund = razorpayClient.payments.refund(paymentId, refundRequest);
+
+        booking.setPaymentId(paymentId);
+        booking.setPaymentStatus("REFUNDED");
+        boolean cancelled = !"CANCELLED".equals(booking.getStatus());
+        if (cancelled) {
+            booking.setStatus("CANCELLED");
+            booking.setCancelledAt(LocalDateTime.now());
+            booking.setHoldExpiresAt(null);
+            bookingSlotLedger.release(booking.getId());
+        }
+
+        System.out.println("💸 Late payment refunded for booking ID: " + booking.getId() + " (hold expired)");
+        System.out.println("🔄 Refund ID: " + refund.get("id"));
+
+        Booking savedBooking = bookingRepository.saveAndFlush(booking);
+        if (cancelled) {
+            // Make car available again, unless it has another active booking
+            carRepository.markAvailable(List.of(booking.getCar().getId()), LocalDateTime.now());
+        }
+        eventPublisher.publishEvent(new BookingChangedEvent(savedBooking));
+        return savedBooking;
+    }
+
     private void sendPaymentSuccessEmails(Booking booking) {
         try {
             String encryptedBookingId = idEncryptionService.encryptId(booking.getId());
@@ -211,12 +304,14 @@ public class PaymentService {
 
         // Make car available again
         booking.getCar().setIsAvailable(true);
+        bookingSlotLedger.release(booking.getId());
 
         System.out.println("💸 Refund initiated for booking ID: " + booking.getId());
         System.out.println("🔄 Refund ID: " + refund.get("id"));
         System.out.println("💰 Refund amount: " + booking.getAmountPaid());
 
         Booking savedBooking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(new BookingChangedEvent(savedBooking));
 
         // Send cancellation email with refund info
         sendCancellationEmailWithRefund(savedBooking, "Booking cancelled with refund",
@@ -272,14 +367,17 @@ public class PaymentService {
 
         // Make car available again
         booking.getCar().setIsAvailable(true);
+        bookingSlotLedger.release(booking.getId());
 
         Booking savedBooking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(new BookingChangedEvent(savedBooking));
 
         // Send booking completion emails
         sendBookingCompletionEmails(savedBooking);
     }
 
-    private void sendBookingCompletionEmails(Booking booking) {
+    // Also used by BookingCompletionSweep
+    void sendBookingCompletionEmails(Booking booking) {
         try {
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
             String bookingDates = booking.getStartDate().format(formatter) + " to " +
@@ -0,0 +1,158 @@
+package com.caronrent.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Compressed (radix) trie of counted keys. Chains of single-child nodes are stored
+ * as one edge label, and nodes whose count drops to zero are pruned or merged back,
+ * so memory stays proportional to the distinct keys currently in use.
+ * Not thread-safe; callers synchronize.
+ */
+class RadixTrie {
+
+    record Entry(String key, String display, int count) {
+    }
+
+    private static class Node {
+        String label;
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        int count;
+        String display;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Node root = new Node("");
+
+    /**
+     * Add delta to the count of key; display is the original spelling shown to users
+     */
+    void add(String key, String display, int delta) {
+        if (key.isEmpty()) {
+            return;
+        }
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        int offset = 0;
+        while (true) {
+            path.push(node);
+            if (offset == key.length()) {
+                break;
+            }
+            Node child = node.children.get(key.charAt(offset));
+            if (child == null) {
+                if (delta <= 0) {
+                    return;
+                }
+                child = new Node(key.substring(offset));
+                node.children.put(child.label.charAt(0), child);
+                path.push(child);
+                node = child;
+                break;
+            }
+            int common = commonPrefix(child.label, key, offset);
+            if (common < child.label.length()) {
+                if (delta <= 0) {
+                    return;
+                }
+                // Split the edge at the point where key diverges
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children.put(child.label.charAt(0), child);
+                node.children.put(middle.label.charAt(0), middle);
+                child = middle;
+            }
+            node = child;
+            offset += common;
+        }
+
+        node.count = Math.max(0, node.count + delta);
+        if (delta > 0 && display != null) {
+            node.display = display;
+        }
+        if (node.count == 0) {
+            prune(path);
+        }
+    }
+
+    /**
+     * Top k keys starting with prefix, highest count first
+     */
+    List<Entry> topK(String prefix, int k) {
+        Node node = root;
+        int offset = 0;
+        StringBuilder matched = new StringBuilder();
+        while (offset < prefix.length()) {
+            Node child = node.children.get(prefix.charAt(offset));
+            if (child == null) {
+                return List.of();
+            }
+            int common = commonPrefix(child.label, prefix, offset);
+            if (offset + common < prefix.length() && common < child.label.length()) {
+                return List.of();
+            }
+            matched.append(child.label);
+            offset += common;
+            node = child;
+        }
+
+        PriorityQueue<Entry> best = new PriorityQueue<>(Comparator.comparingInt(Entry::count)
+                .thenComparing(Entry::key, Comparator.reverseOrder()));
+        collect(node, matched, best, k);
+        List<Entry> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingInt(Entry::count).reversed().thenComparing(Entry::key));
+        return result;
+    }
+
+    private void collect(Node node, StringBuilder key, PriorityQueue<Entry> best, int k) {
+        if (node.count > 0) {
+            best.add(new Entry(key.toString(), node.display, node.count));
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+        for (Node child : node.children.values()) {
+            int length = key.length();
+            key.append(child.label);
+            collect(child, key, best, k);
+            key.setLength(length);
+        }
+    }
+
+    private void prune(Deque<Node> path) {
+        Node node = path.pop();
+        while (!path.isEmpty() && node.count == 0) {
+            Node parent = path.pop();
+            if (node.children.isEmpty()) {
+                // Drop the empty leaf; the parent may now be prunable as well
+                parent.children.remove(node.label.charAt(0));
+                node = parent;
+                continue;
+            }
+            if (node.children.size() == 1) {
+                // Merge a pass-through node with its only child
+                Node only = node.children.firstEntry().getValue();
+                only.label = node.label + only.label;
+                parent.children.put(only.label.charAt(0), only);
+            }
+            return;
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,188 @@
+package com.caronrent.service;
+
+import com.caronrent.event.BookingChangedEvent;
+import com.caronrent.event.CarChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Short-lived cache of the car ids matching a date-window search, one keyset batch
+ * (the ids after a cursor, ascending) per entry.
+ *
+ * Windows are narrowed to whole hours (start rounded up, end rounded down), so
+ * near-identical requests share one entry. A car free for the requested window is
+ * also free for the narrower one, so an entry is a superset of the exact answer;
+ * callers re-check each id against the availability index. Concurrent misses on
+ * one key wait for a single database query.
+ *
+ * A car or booking change only drops the batches whose id range covers that car:
+ * the change can add or remove that car in any window, but no other car moves.
+ */
+@Component
+public class SearchResultCache {
+
+    private final Map<String, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+    // Bumped on every car/booking change; results loaded across a bump are not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Value("${app.search-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    @Value("${app.search-cache.max-entries:5000}")
+    private int maxEntries;
+
+    /**
+     * Loads up to pageable.getPageSize() ids greater than cursor, ascending
+     */
+    @FunctionalInterface
+    public interface BatchLoader {
+        List<Long> load(LocalDateTime startDate, LocalDateTime endDate, Long cursor, Pageable pageable);
+    }
+
+    /**
+     * The next batchSize ids (ascending, after afterId) of listed cars matching the search
+     * that are free for the hour-aligned window inside [startDate, endDate]; a shorter
+     * batch is the last one
+     */
+    public List<Long> getCandidateBatch(String search, String term, LocalDateTime startDate, LocalDateTime endDate,
+                                        long afterId, int batchSize, BatchLoader loader) {
+        LocalDateTime from = ceilToHour(startDate);
+        LocalDateTime to = endDate.truncatedTo(ChronoUnit.HOURS);
+        if (!to.isAfter(from)) {
+            // Shorter than the bucket: nothing to share, use the exact window
+            from = startDate;
+            to = endDate;
+        }
+        String key = search + "|" + term + "|" + from + "|" + to + "|" + afterId + "|" + batchSize;
+        LocalDateTime windowStart = from;
+        LocalDateTime windowEnd = to;
+
+        while (true) {
+            CompletableFuture<Entry> existing = entries.get(key);
+            if (existing != null) {
+                if (!existing.isDone()) {
+                    coalesced.increment();
+                    return await(existing).carIds();
+                }
+                Entry entry = existing.isCompletedExceptionally() ? null : existing.getNow(null);
+                if (entry != null && !entry.isExpired()) {
+                    hits.increment();
+                    return entry.carIds();
+                }
+                entries.remove(key, existing);
+                continue;
+            }
+
+            CompletableFuture<Entry> loading = new CompletableFuture<>();
+            if (entries.putIfAbsent(key, loading) != null) {
+                continue;
+            }
+            misses.increment();
+            long startGeneration = generation.get();
+            try {
+                List<Long> carIds = List.copyOf(loader.load(windowStart, windowEnd, afterId, PageRequest.of(0, batchSize)));
+                loading.complete(new Entry(afterId, carIds, carIds.size() == batchSize,
+                        System.currentTimeMillis() + ttlSeconds * 1000));
+                if (generation.get() != startGeneration) {
+                    entries.remove(key, loading);
+                }
+                evictIfFull();
+                return carIds;
+            } catch (RuntimeException e) {
+                entries.remove(key, loading);
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        // Bookings also flip Car.isAvailable, which affects every window of that car
+        invalidateCar(event.getCarId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        invalidateCar(event.getCarId());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private void invalidateCar(Long carId) {
+        invalidations.increment();
+        generation.incrementAndGet();
+        // In-flight loads stay so their waiters still get one shared result
+        entries.values().removeIf(future -> future.isDone()
+                && (future.isCompletedExceptionally() || future.getNow(null).covers(carId)));
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        entries.values().removeIf(future -> future.isDone()
+                && (future.isCompletedExceptionally() || future.getNow(null).isExpired()));
+        Iterator<CompletableFuture<Entry>> it = entries.values().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            if (it.next().isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static LocalDateTime ceilToHour(LocalDateTime time) {
+        LocalDateTime floor = time.truncatedTo(ChronoUnit.HOURS);
+        return floor.equals(time) ? floor : floor.plusHours(1);
+    }
+
+    // A full batch covers (afterId, last id]; the final one everything after afterId
+    private record Entry(long afterId, List<Long> carIds, boolean full, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+
+        boolean covers(long carId) {
+            return carId > afterId && (!full || carId <= carIds.get(carIds.size() - 1));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.caronrent.service;
+
+import com.caronrent.entity.Booking;
+import com.caronrent.entity.Car;
+import com.caronrent.entity.User;
+import com.caronrent.repo.BookingRepository;
+import com.caronrent.repo.CarRepository;
+import com.caronrent.repo.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One sweep completes overdue confirmed bookings, frees their slots and makes their
+ * cars available again, unless the car has another active booking.
+ */
+@SpringBootTest
+@Transactional
+class BookingCompletionSweepTests {
+
+    @Autowired
+    private BookingCompletionSweep bookingCompletionSweep;
+
+    @Autowired
+    private BookingSlotLedger bookingSlotLedger;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int sequence;
+
+    @Test
+    void sweepCompletesOverdueBookingsAndFreesTheirCars() {
+        User owner = createUser("ROLE_CAROWNER");
+        Car freedCar = createCar(owner);
+        Car stillBookedCar = createCar(owner);
+        LocalDateTime now = LocalDateTime.now();
+
+        Booking overdue = createBooking(freedCar, now.minusDays(3), now.minusDays(1));
+        Booking overdueWithNext = createBooking(stillBookedCar, now.minusDays(3), now.minusDays(1));
+        Booking upcoming = createBooking(stillBookedCar, now.plusDays(1), now.plusDays(2));
+
+        assertEquals(2, bookingCompletionSweep.sweep());
+
+        assertEquals("COMPLETED", statusOf(overdue));
+        assertEquals("COMPLETED", statusOf(overdueWithNext));
+        assertEquals("CONFIRMED", statusOf(upcoming));
+
+        assertEquals(0, slotsOf(overdue));
+        assertEquals(0, slotsOf(overdueWithNext));
+        assertTrue(slotsOf(upcoming) > 0);
+
+        assertTrue(isAvailable(freedCar));
+        assertFalse(isAvailable(stillBookedCar));
+
+        assertEquals(0, bookingCompletionSweep.sweep());
+    }
+
+    private String statusOf(Booking booking) {
+        return jdbcTemplate.queryForObject("SELECT status FROM bookings WHERE id = ?", String.class, booking.getId());
+    }
+
+    private int slotsOf(Booking booking) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM booking_slots WHERE booking_id = ?",
+                Integer.class, booking.getId());
+    }
+
+    private boolean isAvailable(Car car) {
+        return jdbcTemplate.queryForObject("SELECT is_available FROM cars WHERE id = ?", Boolean.class, car.getId());
+    }
+
+    private User createUser(String role) {
+        User user = new User();
+        user.setEmail("sweep" + (++sequence) + "@test.com");
+        user.setPassword("password");
+        user.setEnabled(true);
+        user.setRoles(List.of("ROLE_USER", role));
+        return userRepository.save(user);
+    }
+
+    private Car createCar(User owner) {
+        Car car = new Car();
+        car.setOwner(owner);
+        car.setBrand("Toyota");
+        car.setModel("Innova");
+        car.setYear(2022);
+        car.setRegistrationNumber("MH14SW" + (++sequence));
+        car.setColor("White");
+        car.setDailyRate(2500.0);
+        car.setLocation("Pune");
+        car.setIsAvailable(false);
+        return carRepository.save(car);
+    }
+
+    private Booking createBooking(Car car, LocalDateTime start, LocalDateTime end) {
+        Booking booking = new Booking();
+        booking.setCar(car);
+        booking.setUser(createUser("ROLE_USER"));
+        booking.setStartDate(start);
+        booking.setEndDate(end);
+        booking.setTotalDays(2);
+        booking.setTotalAmount(5000.0);
+        booking.setStatus("CONFIRMED");
+        booking.setDrivingLicenseUrl("license.pdf");
+        booking.setAadharCardUrl("aadhar.pdf");
+        booking.setPoliceVerificationUrl("police.pdf");
+        Booking saved = bookingRepository.saveAndFlush(booking);
+        bookingSlotLedger.reserve(saved.getId(), car.getId(), start, end);
+        return saved;
+    }
+}
@@ -0,0 +1,115 @@
+package com.caronrent.service;
+
+import com.caronrent.event.BookingChangedEvent;
+import com.caronrent.repo.BookingRepository;
+import com.caronrent.repo.CarRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The wheel checks a booking only once its deadline's tick has passed, and cancels it
+ * only if the database still has it held and overdue.
+ */
+class BookingHoldWheelTests {
+    private static final long BOOKING_ID = 7L;
+    private static final long CAR_ID = 3L;
+
+    private BookingRepository bookingRepository;
+    private CarRepository carRepository;
+    private BookingSlotLedger bookingSlotLedger;
+    private ApplicationEventPublisher eventPublisher;
+    private BookingHoldWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        carRepository = mock(CarRepository.class);
+        bookingSlotLedger = mock(BookingSlotLedger.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        wheel = new BookingHoldWheel(bookingRepository, carRepository, bookingSlotLedger, eventPublisher,
+                mock(PlatformTransactionManager.class), 1, 30);
+    }
+
+    @Test
+    void holdIsNotCheckedBeforeItsDeadline() {
+        wheel.schedule(BOOKING_ID, LocalDateTime.now().plusHours(1));
+
+        wheel.advance();
+
+        verify(bookingRepository, never()).lockExpiredHolds(anyCollection(), any());
+        assertEquals(1, wheel.getStats().get("scheduled"));
+    }
+
+    @Test
+    void expiredHoldIsCancelledAndReleased() throws InterruptedException {
+        List<BookingRepository.BookingIntervalView> expired = List.of(interval());
+        when(bookingRepository.lockExpiredHolds(eq(List.of(BOOKING_ID)), any())).thenReturn(expired);
+
+        wheel.schedule(BOOKING_ID, LocalDateTime.now().minusMinutes(1));
+        Thread.sleep(5); // due on the next tick
+        wheel.advance();
+
+        verify(bookingRepository).cancelHolds(eq(List.of(BOOKING_ID)), any());
+        verify(carRepository).markAvailable(eq(List.of(CAR_ID)), any());
+        verify(bookingSlotLedger).releaseAll(List.of(BOOKING_ID));
+        verify(eventPublisher).publishEvent(any(BookingChangedEvent.class));
+        assertEquals(0, wheel.getStats().get("scheduled"));
+        assertEquals(1L, wheel.getStats().get("expired"));
+    }
+
+    @Test
+    void holdPaidBeforeItsDeadlineIsLeftAlone() throws InterruptedException {
+        // The booking is no longer held, so the lock query finds nothing
+        when(bookingRepository.lockExpiredHolds(anyCollection(), any())).thenReturn(List.of());
+
+        wheel.schedule(BOOKING_ID, LocalDateTime.now().minusMinutes(1));
+        Thread.sleep(5);
+        wheel.advance();
+
+        verify(bookingRepository).lockExpiredHolds(eq(List.of(BOOKING_ID)), any());
+        verify(bookingRepository, never()).cancelHolds(anyCollection(), any());
+        verify(bookingSlotLedger, never()).releaseAll(anyCollection());
+        assertEquals(0L, wheel.getStats().get("expired"));
+    }
+
+    @Test
+    void heldBookingWithoutDeadlineGetsOneFromCreatedAt() throws InterruptedException {
+        LocalDateTime createdAt = LocalDateTime.now().minusHours(2);
+        BookingRepository.BookingHoldView legacy = mock(BookingRepository.BookingHoldView.class);
+        when(legacy.getId()).thenReturn(BOOKING_ID);
+        when(legacy.getCreatedAt()).thenReturn(createdAt);
+        when(bookingRepository.findHeldBookings()).thenReturn(List.of(legacy));
+        List<BookingRepository.BookingIntervalView> expired = List.of(interval());
+        when(bookingRepository.lockExpiredHolds(eq(List.of(BOOKING_ID)), any())).thenReturn(expired);
+
+        wheel.run();
+        Thread.sleep(5);
+        wheel.advance();
+
+        verify(bookingRepository).backfillHoldExpiry(BOOKING_ID, createdAt.plusMinutes(30));
+        verify(bookingRepository).cancelHolds(eq(List.of(BOOKING_ID)), any());
+    }
+
+    private static BookingRepository.BookingIntervalView interval() {
+        BookingRepository.BookingIntervalView interval = mock(BookingRepository.BookingIntervalView.class);
+        when(interval.getId()).thenReturn(BOOKING_ID);
+        when(interval.getCarId()).thenReturn(CAR_ID);
+        when(interval.getStartDate()).thenReturn(LocalDateTime.now().plusDays(1));
+        when(interval.getEndDate()).thenReturn(LocalDateTime.now().plusDays(2));
+        return interval;
+    }
+}
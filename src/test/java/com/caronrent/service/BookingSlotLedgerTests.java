@@ -0,0 +1,151 @@
+package com.caronrent.service;
+
+import com.caronrent.entity.Booking;
+import com.caronrent.entity.Car;
+import com.caronrent.entity.User;
+import com.caronrent.repo.BookingRepository;
+import com.caronrent.repo.CarRepository;
+import com.caronrent.repo.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The ledger rejects overlapping bookings of a car, but not bookings that only share
+ * an hour, and frees (or hands over) slots on release.
+ */
+@SpringBootTest
+@Transactional
+class BookingSlotLedgerTests {
+
+    @Autowired
+    private BookingSlotLedger bookingSlotLedger;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Car car;
+    private LocalDateTime day;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() {
+        car = createCar(createUser("ROLE_CAROWNER"));
+        day = LocalDateTime.now().plusDays(3).withHour(0).withMinute(0).withSecond(0).withNano(0);
+    }
+
+    @Test
+    void overlappingBookingIsRejected() {
+        reserve(day.withHour(9), day.withHour(12));
+
+        assertThrows(RuntimeException.class, () -> reserve(day.withHour(11), day.withHour(14)));
+        assertThrows(RuntimeException.class, () -> reserve(day.withHour(11).withMinute(30), day.withHour(11).withMinute(45)));
+        assertEquals(3, slotCount());
+    }
+
+    @Test
+    void bookingsSharingAnHourDoNotConflict() {
+        reserve(day.withHour(8), day.withHour(10).withMinute(30));
+
+        assertDoesNotThrow(() -> reserve(day.withHour(10).withMinute(45), day.withHour(13)));
+        assertThrows(RuntimeException.class, () -> reserve(day.withHour(10).withMinute(15), day.withHour(10).withMinute(50)));
+        // Ends on the hour, so the 12:00 slot stays free
+        assertDoesNotThrow(() -> reserve(day.withHour(13), day.withHour(15)));
+    }
+
+    @Test
+    void releaseFreesSlotsAndHandsOverSharedOnes() {
+        Booking first = reserve(day.withHour(8), day.withHour(10).withMinute(30));
+        Booking second = reserve(day.withHour(10).withMinute(45), day.withHour(12));
+
+        cancel(first);
+        bookingSlotLedger.release(first.getId());
+
+        assertEquals(0, slotCount(first));
+        assertEquals(2, slotCount(second));
+        // The 10:00 slot is still held for the second booking
+        assertThrows(RuntimeException.class, () -> reserve(day.withHour(10), day.withHour(11)));
+
+        cancel(second);
+        bookingSlotLedger.releaseAll(List.of(second.getId()));
+        assertEquals(0, slotCount());
+        assertDoesNotThrow(() -> reserve(day.withHour(10), day.withHour(11)));
+    }
+
+    private Booking reserve(LocalDateTime start, LocalDateTime end) {
+        Booking booking = new Booking();
+        booking.setCar(car);
+        booking.setUser(createUser("ROLE_USER"));
+        booking.setStartDate(start);
+        booking.setEndDate(end);
+        booking.setTotalDays(1);
+        booking.setTotalAmount(2500.0);
+        booking.setStatus("CONFIRMED");
+        Booking saved = bookingRepository.saveAndFlush(booking);
+        try {
+            bookingSlotLedger.reserve(saved.getId(), car.getId(), start, end);
+        } catch (RuntimeException e) {
+            // As the booking transaction would roll back
+            bookingRepository.delete(saved);
+            bookingRepository.flush();
+            throw e;
+        }
+        return saved;
+    }
+
+    private void cancel(Booking booking) {
+        booking.setStatus("CANCELLED");
+        bookingRepository.saveAndFlush(booking);
+    }
+
+    private int slotCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM booking_slots WHERE car_id = ?",
+                Integer.class, car.getId());
+    }
+
+    private int slotCount(Booking booking) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM booking_slots WHERE booking_id = ?",
+                Integer.class, booking.getId());
+    }
+
+    private User createUser(String role) {
+        User user = new User();
+        user.setEmail("ledger" + (++sequence) + "@test.com");
+        user.setPassword("password");
+        user.setEnabled(true);
+        user.setRoles(List.of("ROLE_USER", role));
+        return userRepository.save(user);
+    }
+
+    private Car createCar(User owner) {
+        Car car = new Car();
+        car.setOwner(owner);
+        car.setBrand("Toyota");
+        car.setModel("Innova");
+        car.setYear(2022);
+        car.setRegistrationNumber("MH14LG" + (++sequence));
+        car.setColor("White");
+        car.setDailyRate(2500.0);
+        car.setLocation("Pune");
+        return carRepository.save(car);
+    }
+}
@@ -0,0 +1,100 @@
+package com.caronrent.service;
+
+import com.caronrent.repo.BookingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Contenders for one car are decided one at a time: an overlapping claim is refused
+ * while another transaction holds the window, and the window frees up once that
+ * transaction completes.
+ */
+class CarBookingQueueTests {
+    private static final long CAR_ID = 11L;
+
+    private final CarBookingQueue queue = new CarBookingQueue(new CarAvailabilityIndex(mock(BookingRepository.class)));
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1);
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    void onlyOneOfTwoContendersGetsTheCar() throws Exception {
+        ExecutorService contenders = Executors.newFixedThreadPool(2);
+        CountDownLatch ready = new CountDownLatch(2);
+        List<Future<List<TransactionSynchronization>>> results = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            LocalDateTime from = start.plusHours(i);
+            results.add(contenders.submit(() -> {
+                ready.countDown();
+                ready.await();
+                return claimInTransaction(from, from.plusDays(1));
+            }));
+        }
+
+        List<TransactionSynchronization> winner = null;
+        int refused = 0;
+        for (Future<List<TransactionSynchronization>> result : results) {
+            List<TransactionSynchronization> synchronizations = result.get();
+            if (synchronizations == null) {
+                refused++;
+            } else {
+                winner = synchronizations;
+            }
+        }
+        contenders.shutdown();
+        assertEquals(1, refused);
+
+        // The winner rolls back, which must release its claim
+        complete(winner, TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertNotNull(claimInTransaction(start, start.plusDays(1)));
+    }
+
+    @Test
+    void claimsOnSeparateWindowsBothSucceed() {
+        assertNotNull(claimInTransaction(start, start.plusHours(2)));
+        assertNotNull(claimInTransaction(start.plusHours(3), start.plusHours(5)));
+    }
+
+    @Test
+    void claimOutsideATransactionIsRejected() {
+        assertThrows(IllegalStateException.class, () -> queue.claim(CAR_ID, start, start.plusDays(1)));
+    }
+
+    // Claims in a fresh transaction scope; returns its synchronizations, or null if the claim was refused
+    private List<TransactionSynchronization> claimInTransaction(LocalDateTime from, LocalDateTime to) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            queue.claim(CAR_ID, from, to);
+            return TransactionSynchronizationManager.getSynchronizations();
+        } catch (RuntimeException e) {
+            assertEquals("Car is already booked for the selected dates", e.getMessage());
+            return null;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void complete(List<TransactionSynchronization> synchronizations, int status) {
+        for (TransactionSynchronization synchronization : synchronizations) {
+            synchronization.afterCompletion(status);
+        }
+    }
+}
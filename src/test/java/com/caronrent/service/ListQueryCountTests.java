@@ -0,0 +1,214 @@
+package com.caronrent.service;
+
+import com.caronrent.dto.BookingResponseDTO;
+import com.caronrent.dto.CarResponseDTO;
+import com.caronrent.dto.CarSearchCriteria;
+import com.caronrent.dto.FieldSelection;
+import com.caronrent.entity.Booking;
+import com.caronrent.entity.Car;
+import com.caronrent.entity.CarImage;
+import com.caronrent.entity.User;
+import com.caronrent.repo.BookingRepository;
+import com.caronrent.repo.CarImageRepository;
+import com.caronrent.repo.CarRepository;
+import com.caronrent.repo.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * List endpoints must issue the same number of SQL statements for 3 rows as for 30.
+ */
+@SpringBootTest
+@Transactional
+class ListQueryCountTests {
+
+    @Autowired
+    private CarService carService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private CarImageRepository carImageRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private IdEncryptionService idEncryptionService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void myCarsRunsConstantStatements() {
+        User owner = createUser("ROLE_CAROWNER");
+        createCars(owner, 3);
+        long small = countStatements(() -> assertEquals(3, carService.getMyCars(owner.getEmail(), FieldSelection.ALL).size()));
+
+        createCars(owner, 27);
+        long large = countStatements(() -> assertEquals(30, carService.getMyCars(owner.getEmail(), FieldSelection.ALL).size()));
+
+        assertEquals(small, large);
+    }
+
+    @Test
+    void searchAcrossOwnersRunsConstantStatements() {
+        CarSearchCriteria criteria = new CarSearchCriteria();
+        criteria.setLocation("Pune");
+        for (int i = 0; i < 3; i++) {
+            createCars(createUser("ROLE_CAROWNER"), 1);
+        }
+        long small = countStatements(() -> assertEquals(3, carService.searchCars(criteria, null, null, null, FieldSelection.ALL).getCars().size()));
+
+        for (int i = 0; i < 27; i++) {
+            createCars(createUser("ROLE_CAROWNER"), 1);
+        }
+        long large = countStatements(() -> assertEquals(30, carService.searchCars(criteria, null, null, null, FieldSelection.ALL).getCars().size()));
+
+        assertEquals(small, large);
+    }
+
+    @Test
+    void ownerBookingsRunConstantStatements() {
+        User owner = createUser("ROLE_CAROWNER");
+        createBookings(createCars(owner, 3));
+        long small = countStatements(() -> assertEquals(3, bookingService.getOwnerBookings(owner.getEmail(), FieldSelection.ALL).size()));
+
+        createBookings(createCars(owner, 27));
+        long large = countStatements(() -> assertEquals(30, bookingService.getOwnerBookings(owner.getEmail(), FieldSelection.ALL).size()));
+
+        assertEquals(small, large);
+    }
+
+    @Test
+    void batchLookupRunsOneStatementInRequestOrder() {
+        List<String> requested = new ArrayList<>();
+        for (Car car : createCars(createUser("ROLE_CAROWNER"), 30)) {
+            requested.add(0, idEncryptionService.encryptId(car.getId()));
+        }
+        requested.add(requested.get(5));
+
+        List<CarResponseDTO> found = new ArrayList<>();
+        long statements = countStatements(() -> found.addAll(carService.getCarsByIds(requested)));
+
+        assertEquals(1, statements);
+        assertEquals(requested.subList(0, 30), found.stream().map(CarResponseDTO::getId).toList());
+        assertEquals(2, found.get(0).getImageUrls().size());
+    }
+
+    @Test
+    void sparseFieldsSelectOnlyRequestedColumns() {
+        User owner = createUser("ROLE_CAROWNER");
+        createBookings(createCars(owner, 30));
+        FieldSelection carFields = FieldSelection.parse("brand,dailyRate", CarResponseDTO.class);
+        FieldSelection bookingFields = FieldSelection.parse("carBrand,status", BookingResponseDTO.class);
+
+        List<CarResponseDTO> cars = new ArrayList<>();
+        long carStatements = countStatements(() -> cars.addAll(carService.getMyCars(owner.getEmail(), carFields)));
+        List<BookingResponseDTO> bookings = new ArrayList<>();
+        long bookingStatements = countStatements(() -> bookings.addAll(bookingService.getOwnerBookings(owner.getEmail(), bookingFields)));
+
+        // User lookup plus one projection; images are never queried
+        long lookup = countStatements(() -> userRepository.findByEmail(owner.getEmail()).orElseThrow().getRoles().size());
+        assertEquals(lookup + 1, carStatements);
+        assertEquals(lookup + 1, bookingStatements);
+        assertEquals(30, cars.size());
+        assertEquals("Toyota", cars.get(0).getBrand());
+        assertNull(cars.get(0).getImageUrls());
+        assertEquals(30, bookings.size());
+        assertEquals("PAYMENT_PENDING", bookings.get(0).getStatus());
+        assertNull(bookings.get(0).getDrivingLicenseUrl());
+    }
+
+    private long countStatements(Runnable action) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User createUser(String role) {
+        User user = new User();
+        user.setEmail("user" + (++sequence) + "@test.com");
+        user.setPassword("password");
+        user.setEnabled(true);
+        user.setRoles(List.of("ROLE_USER", role));
+        return userRepository.save(user);
+    }
+
+    private List<Car> createCars(User owner, int count) {
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Car car = new Car();
+            car.setOwner(owner);
+            car.setBrand("Toyota");
+            car.setModel("Innova");
+            car.setYear(2022);
+            car.setRegistrationNumber("MH12AB" + (++sequence));
+            car.setColor("White");
+            car.setDailyRate(2500.0);
+            car.setLocation("Pune");
+            Car saved = carRepository.save(car);
+
+            for (int j = 0; j < 2; j++) {
+                CarImage image = new CarImage();
+                image.setCar(saved);
+                image.setImageUrl("http://localhost/uploads/cars/" + saved.getId() + "-" + j + ".jpg");
+                image.setIsPrimary(j == 0);
+                carImageRepository.save(image);
+            }
+            cars.add(saved);
+        }
+        return cars;
+    }
+
+    private void createBookings(List<Car> cars) {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        for (Car car : cars) {
+            Booking booking = new Booking();
+            booking.setCar(car);
+            booking.setUser(createUser("ROLE_USER"));
+            booking.setStartDate(start);
+            booking.setEndDate(start.plusDays(2));
+            booking.setTotalDays(2);
+            booking.setTotalAmount(5000.0);
+            booking.setDrivingLicenseUrl("license.pdf");
+            booking.setAadharCardUrl("aadhar.pdf");
+            booking.setPoliceVerificationUrl("police.pdf");
+            bookingRepository.save(booking);
+        }
+    }
+}
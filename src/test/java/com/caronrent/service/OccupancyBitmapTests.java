@@ -0,0 +1,87 @@
+package com.caronrent.service;
+
+import com.caronrent.event.BookingChangedEvent;
+import com.caronrent.repo.BookingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Bit ranges that start, end or span across 64-bit words, and the availability index
+ * rebuilding its bitmaps when the horizon moves.
+ */
+class OccupancyBitmapTests {
+
+    @Test
+    void rangeWithinOneWord() {
+        long[] words = OccupancyBitmap.create(128);
+        OccupancyBitmap.set(words, 5, 5);
+
+        assertArrayEquals(new long[]{1L << 5, 0}, words);
+        assertTrue(OccupancyBitmap.anySet(words, 0, 5));
+        assertFalse(OccupancyBitmap.anySet(words, 6, 127));
+    }
+
+    @Test
+    void rangeAcrossWordBoundary() {
+        long[] words = OccupancyBitmap.create(192);
+        OccupancyBitmap.set(words, 60, 70);
+
+        assertArrayEquals(new long[]{0xFL << 60, 0x7FL, 0}, words);
+        assertTrue(OccupancyBitmap.anySet(words, 63, 63));
+        assertTrue(OccupancyBitmap.anySet(words, 64, 64));
+        assertFalse(OccupancyBitmap.anySet(words, 0, 59));
+        assertFalse(OccupancyBitmap.anySet(words, 71, 191));
+    }
+
+    @Test
+    void rangeCoveringWholeWords() {
+        long[] words = OccupancyBitmap.create(256);
+        OccupancyBitmap.set(words, 64, 191);
+
+        assertArrayEquals(new long[]{0, -1L, -1L, 0}, words);
+        assertTrue(OccupancyBitmap.anySet(words, 0, 64));
+        assertTrue(OccupancyBitmap.anySet(words, 191, 255));
+        assertFalse(OccupancyBitmap.anySet(words, 192, 255));
+    }
+
+    @Test
+    void setBitInAMiddleWordIsFound() {
+        long[] words = OccupancyBitmap.create(256);
+        OccupancyBitmap.set(words, 130, 130);
+
+        assertTrue(OccupancyBitmap.anySet(words, 0, 255));
+        assertFalse(OccupancyBitmap.anySet(words, 131, 255));
+        assertFalse(OccupancyBitmap.anySet(words, 0, 129));
+    }
+
+    @Test
+    void bitmapsAreRebuiltWhenTheHorizonRolls() {
+        CarAvailabilityIndex index = new CarAvailabilityIndex(mock(BookingRepository.class));
+        ReflectionTestUtils.setField(index, "horizonDays", 2);
+        LocalDate today = LocalDate.now();
+        // As if the index was loaded yesterday: tomorrow's booking lies beyond the 48-hour bitmap
+        ReflectionTestUtils.setField(index, "baseHour",
+                today.minusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC) / 3600);
+
+        LocalDateTime tomorrow = today.plusDays(1).atStartOfDay();
+        index.onBookingChanged(new BookingChangedEvent(1L, 7L, tomorrow.withHour(10), tomorrow.withHour(12), "CONFIRMED"));
+        assertTrue(index.isAvailable(7L, today.atTime(10, 0), today.atTime(11, 0)));
+        assertFalse(index.isAvailable(7L, tomorrow.withHour(11), tomorrow.withHour(13)));
+
+        index.rollHorizon();
+
+        // Tomorrow is now inside the bitmap, so the one built for yesterday's base must not be reused
+        assertFalse(index.isAvailable(7L, tomorrow.withHour(10).withMinute(30), tomorrow.withHour(11)));
+        assertTrue(index.isAvailable(7L, tomorrow.withHour(14), tomorrow.withHour(15)));
+        assertTrue(index.isAvailable(7L, today.atTime(10, 0), today.atTime(11, 0)));
+    }
+}
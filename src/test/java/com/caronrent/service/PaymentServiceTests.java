@@ -0,0 +1,148 @@
+package com.caronrent.service;
+
+import com.caronrent.dto.PaymentVerificationRequest;
+import com.caronrent.entity.Booking;
+import com.caronrent.entity.Car;
+import com.caronrent.repo.BookingRepository;
+import com.caronrent.repo.CarRepository;
+import com.razorpay.PaymentClient;
+import com.razorpay.RazorpayClient;
+import com.razorpay.Refund;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A payment that arrives after the hold lapsed is refunded once; replaying a verified
+ * payment (a retried verify or a duplicate callback) leaves a confirmed or refunded
+ * booking as it is and never refunds twice.
+ */
+class PaymentServiceTests {
+    private static final String SECRET = "test-key-secret";
+    private static final long BOOKING_ID = 5L;
+    private static final String ORDER_ID = "order_1";
+    private static final String PAYMENT_ID = "pay_1";
+    private static final long CAR_ID = 3L;
+
+    private BookingRepository bookingRepository;
+    private CarRepository carRepository;
+    private BookingSlotLedger bookingSlotLedger;
+    private PaymentClient payments;
+    private PaymentService paymentService;
+
+    @BeforeEach
+    void setUp() {
+        bookingRepository = mock(BookingRepository.class);
+        carRepository = mock(CarRepository.class);
+        bookingSlotLedger = mock(BookingSlotLedger.class);
+        payments = mock(PaymentClient.class);
+        RazorpayClient razorpayClient = mock(RazorpayClient.class);
+        razorpayClient.payments = payments;
+        IdEncryptionService idEncryptionService = mock(IdEncryptionService.class);
+        when(idEncryptionService.decryptId("encrypted")).thenReturn(BOOKING_ID);
+
+        paymentService = new PaymentService(razorpayClient, bookingRepository, carRepository, idEncryptionService,
+                mock(EmailService.class), bookingSlotLedger, mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(paymentService, "razorpayKeySecret", SECRET);
+    }
+
+    @Test
+    void paymentAfterTheHoldLapsedIsRefundedOnce() throws Exception {
+        Booking booking = booking("PAYMENT_PENDING", "PENDING");
+        booking.setHoldExpiresAt(LocalDateTime.now().minusMinutes(1));
+        when(payments.refund(eq(PAYMENT_ID), any(JSONObject.class))).thenReturn(mock(Refund.class));
+        when(bookingRepository.saveAndFlush(booking)).thenReturn(booking);
+
+        Booking result = paymentService.verifyPayment(request());
+        assertEquals("CANCELLED", result.getStatus());
+        assertEquals("REFUNDED", result.getPaymentStatus());
+        verify(bookingSlotLedger).release(BOOKING_ID);
+        // The car is freed only through the guarded update, never by setting the flag directly
+        verify(carRepository).markAvailable(eq(List.of(CAR_ID)), any());
+        assertEquals(Boolean.FALSE, booking.getCar().getIsAvailable());
+
+        paymentService.verifyPayment(request());
+        verify(payments, times(1)).refund(anyString(), any(JSONObject.class));
+    }
+
+    @Test
+    void replayOnConfirmedBookingIsIdempotent() throws Exception {
+        for (String status : new String[]{"PAYMENT_CONFIRMED", "CONFIRMED"}) {
+            Booking booking = booking(status, "PAID");
+
+            Booking result = paymentService.verifyPayment(request());
+
+            assertSame(booking, result);
+            assertEquals(status, result.getStatus());
+            assertEquals("PAID", result.getPaymentStatus());
+        }
+        verify(payments, never()).refund(anyString(), any(JSONObject.class));
+        verify(bookingSlotLedger, never()).release(anyLong());
+        verify(bookingRepository, never()).save(any());
+    }
+
+    @Test
+    void replayOnRefundedBookingDoesNotRefundAgain() throws Exception {
+        Booking booking = booking("CANCELLED", "REFUNDED");
+
+        Booking result = paymentService.verifyPayment(request());
+
+        assertSame(booking, result);
+        assertEquals("REFUNDED", result.getPaymentStatus());
+        verify(payments, never()).refund(anyString(), any(JSONObject.class));
+        verify(bookingRepository, never()).save(any());
+    }
+
+    private Booking booking(String status, String paymentStatus) {
+        Booking booking = new Booking();
+        booking.setId(BOOKING_ID);
+        booking.setStatus(status);
+        booking.setPaymentStatus(paymentStatus);
+        booking.setPaymentId(PAYMENT_ID);
+        booking.setOrderId(ORDER_ID);
+        booking.setTotalAmount(2500.0);
+        booking.setAmountPaid(2500.0);
+        booking.setCreatedAt(LocalDateTime.now().minusHours(1));
+        Car car = new Car();
+        car.setId(CAR_ID);
+        car.setIsAvailable(false);
+        booking.setCar(car);
+        when(bookingRepository.findByIdForUpdate(BOOKING_ID)).thenReturn(Optional.of(booking));
+        return booking;
+    }
+
+    private static PaymentVerificationRequest request() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] signature = mac.doFinal((ORDER_ID + "|" + PAYMENT_ID).getBytes(StandardCharsets.UTF_8));
+
+        PaymentVerificationRequest request = new PaymentVerificationRequest();
+        request.setBookingId("encrypted");
+        request.setRazorpayOrderId(ORDER_ID);
+        request.setRazorpayPaymentId(PAYMENT_ID);
+        request.setRazorpaySignature(HexFormat.of().formatHex(signature));
+        return request;
+    }
+}
@@ -0,0 +1,91 @@
+package com.caronrent.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Edges split when a key diverges inside them, empty nodes are pruned and merged back,
+ * and topK ranks by count, then key.
+ */
+class RadixTrieTests {
+
+    private final RadixTrie trie = new RadixTrie();
+
+    @Test
+    void insertSplitsTheSharedEdge() {
+        trie.add("goa", "Goa", 1);
+        assertEquals(List.of("goa"), labels(root()));
+
+        trie.add("gokarna", "Gokarna", 1);
+        Object shared = children(root()).get('g');
+        assertEquals(List.of("go"), labels(root()));
+        assertEquals(List.of("a", "karna"), labels(shared));
+        assertEquals(List.of("goa", "gokarna"), keys(trie.topK("go", 10)));
+        assertEquals(List.of("gokarna"), keys(trie.topK("gok", 10)));
+    }
+
+    @Test
+    void deleteMergesAndPrunesNodes() {
+        trie.add("goa", "Goa", 1);
+        trie.add("gokarna", "Gokarna", 1);
+
+        trie.add("gokarna", null, -1);
+        assertEquals(List.of("goa"), labels(root()));
+        assertTrue(children(children(root()).get('g')).isEmpty());
+        assertEquals(List.of("goa"), keys(trie.topK("g", 10)));
+
+        trie.add("goa", null, -1);
+        assertTrue(children(root()).isEmpty());
+        assertEquals(List.of(), trie.topK("g", 10));
+    }
+
+    @Test
+    void prefixKeyKeepsItsNodeWhileChildrenRemain() {
+        trie.add("pune", "Pune", 1);
+        trie.add("pune east", "Pune East", 1);
+
+        trie.add("pune", null, -1);
+        assertEquals(List.of("pune east"), keys(trie.topK("pune", 10)));
+        assertEquals(List.of("pune east"), labels(root()));
+    }
+
+    @Test
+    void topKOrdersByCountThenKey() {
+        trie.add("pune", "Pune", 5);
+        trie.add("patna", "Patna", 3);
+        trie.add("panaji", "Panaji", 3);
+        trie.add("pondicherry", "Pondicherry", 1);
+        trie.add("mumbai", "Mumbai", 9);
+
+        assertEquals(List.of("pune", "panaji", "patna"), keys(trie.topK("p", 3)));
+        assertEquals(List.of("pune", "panaji", "patna", "pondicherry"), keys(trie.topK("p", 10)));
+        assertEquals(List.of("patna"), keys(trie.topK("pat", 10)));
+        assertEquals("Panaji", trie.topK("pan", 1).get(0).display());
+        assertEquals(List.of(), trie.topK("px", 10));
+    }
+
+    private Object root() {
+        return ReflectionTestUtils.getField(trie, "root");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Character, Object> children(Object node) {
+        return (Map<Character, Object>) ReflectionTestUtils.getField(node, "children");
+    }
+
+    private static List<String> labels(Object node) {
+        return children(node).values().stream()
+                .map(child -> (String) ReflectionTestUtils.getField(child, "label"))
+                .toList();
+    }
+
+    private static List<String> keys(List<RadixTrie.Entry> entries) {
+        return entries.stream().map(RadixTrie.Entry::key).toList();
+    }
+}